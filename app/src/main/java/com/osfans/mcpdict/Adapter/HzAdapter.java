@@ -19,6 +19,8 @@ import com.osfans.mcpdict.Util.FontUtil;
 
 public class HzAdapter extends CursorAdapter {
 
+    private final InputSession mSession = new InputSession();
+
     public HzAdapter(Context context) {
         super(context, null, true);
     }
@@ -39,7 +41,7 @@ public class HzAdapter extends CursorAdapter {
 
     @Override
     public Cursor runQueryOnBackgroundThread(CharSequence constraint) {
-        return DB.getInputCursor(constraint.toString());
+        return mSession.query(constraint.toString());
     }
 
     @Override
@@ -0,0 +1,162 @@
+package com.osfans.mcpdict.Adapter;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.osfans.mcpdict.DB;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The candidates of the inputs typed so far in the search box.
+// Appending narrows the last candidates in memory when its keywords are covered by the last ones,
+// deleting goes back to the candidates of the shorter input.
+// In 音碼提示 there are no keywords to compare, so only deleting is served from memory.
+public class InputSession {
+    private static final int LIMIT = 100;
+    private static final int MAX_STEPS = 32;
+
+    private static class Step {
+        final String input;
+        final List<String> keywords;
+        final String[] columns;
+        final List<Object[]> rows;
+
+        Step(String input, List<String> keywords, String[] columns, List<Object[]> rows) {
+            this.input = input;
+            this.keywords = keywords;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        // Fewer rows than the limit means nothing was cut off
+        boolean isComplete() {
+            return rows.size() < LIMIT;
+        }
+
+        Cursor newCursor() {
+            MatrixCursor cursor = new MatrixCursor(columns, rows.size());
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+    }
+
+    private final List<Step> mSteps = new ArrayList<>();
+    private String mScheme;
+
+    public synchronized Cursor query(String input) {
+        String scheme = DB.getInputScheme();
+        if (!scheme.equals(mScheme)) {
+            mScheme = scheme;
+            mSteps.clear();
+        }
+        // Back to an earlier input after a deletion
+        while (!mSteps.isEmpty()) {
+            Step last = mSteps.get(mSteps.size() - 1);
+            if (last.input.equals(input)) return last.newCursor();
+            if (input.startsWith(last.input)) break;
+            mSteps.remove(mSteps.size() - 1);
+        }
+        List<String> keywords = DB.getInputKeywords(input);
+        Step last = mSteps.isEmpty() ? null : mSteps.get(mSteps.size() - 1);
+        Step step;
+        if (last != null && last.isComplete() && covers(last.keywords, keywords)) {
+            step = narrow(last, input, keywords);
+        } else {
+            Cursor cursor = DB.getInputCursor(input);
+            if (cursor == null) return null;
+            step = copy(input, keywords, cursor);
+        }
+        if (mSteps.size() == MAX_STEPS) mSteps.remove(0);
+        mSteps.add(step);
+        return step.newCursor();
+    }
+
+    private static boolean isPlain(String keyword) {
+        String term = keyword.endsWith("*") ? keyword.substring(0, keyword.length() - 1) : keyword;
+        if (term.isEmpty()) return false;
+        for (int i = 0; i < term.length(); i++) {
+            if (!isTokenChar(term.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // Every new keyword matches only codes that one of the old keywords matches
+    private static boolean covers(List<String> old, List<String> keywords) {
+        if (old == null || keywords == null || keywords.isEmpty()) return false;
+        for (String keyword : keywords) {
+            if (!isPlain(keyword)) return false;
+            boolean covered = false;
+            for (String o : old) {
+                if (!isPlain(o)) return false;
+                if (o.endsWith("*") ? keyword.startsWith(o.substring(0, o.length() - 1)) : keyword.equals(o)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) return false;
+        }
+        return true;
+    }
+
+    private static Step narrow(Step last, String input, List<String> keywords) {
+        List<String> terms = new ArrayList<>();
+        for (String keyword : keywords) {
+            terms.add(toLower(keyword));
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : last.rows) {
+            if (matches((String) row[1], terms)) rows.add(row);
+        }
+        return new Step(input, keywords, last.columns, rows);
+    }
+
+    private static Step copy(String input, List<String> keywords, Cursor cursor) {
+        String[] columns = cursor.getColumnNames();
+        List<Object[]> rows = new ArrayList<>(cursor.getCount());
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            rows.add(new Object[]{cursor.getString(0), cursor.getString(1), cursor.getLong(2)});
+        }
+        cursor.close();
+        return new Step(input, keywords, columns, rows);
+    }
+
+    // Same token characters as the FTS simple tokenizer
+    private static boolean isTokenChar(char c) {
+        return c >= 0x80 || Character.isLetterOrDigit(c);
+    }
+
+    // Whether a token of the cell, outside {notes}, is matched by one of the keywords
+    private static boolean matches(String cell, List<String> keywords) {
+        if (cell == null) return false;
+        int n = cell.length(), p = 0;
+        while (p < n) {
+            char c = cell.charAt(p);
+            if (c == '{') {
+                int q = cell.indexOf('}', p);
+                p = q < 0 ? n : q + 1;
+            } else if (isTokenChar(c)) {
+                int q = p;
+                while (q < n && isTokenChar(cell.charAt(q))) q++;
+                String token = toLower(cell.substring(p, q));
+                for (String keyword : keywords) {
+                    if (keyword.endsWith("*") ? token.startsWith(keyword.substring(0, keyword.length() - 1)) : token.equals(keyword)) return true;
+                }
+                p = q;
+            } else p++;
+        }
+        return false;
+    }
+
+    // The simple tokenizer only folds ASCII
+    private static String toLower(String s) {
+        StringBuilder sb = new StringBuilder(s);
+        for (int i = 0; i < sb.length(); i++) {
+            char c = sb.charAt(i);
+            if (c < 0x80) sb.setCharAt(i, Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}
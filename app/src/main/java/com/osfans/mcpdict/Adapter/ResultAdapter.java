@@ -0,0 +1,105 @@
+package com.osfans.mcpdict.Adapter;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The results of the text formats, one item for each character.
+// A row is formatted only when its item comes on the screen, so the cost follows the screen and not the results.
+public abstract class ResultAdapter extends RecyclerView.Adapter<ResultAdapter.Holder> {
+
+    public static class Holder extends RecyclerView.ViewHolder {
+        final TextView mTextView;
+
+        Holder(TextView view) {
+            super(view);
+            mTextView = view;
+        }
+    }
+
+    // Either a fixed text or a row of a page
+    private static class Item {
+        final CharSequence text;
+        final Cursor page;
+        final int position;
+        final boolean first;
+
+        Item(CharSequence text, Cursor page, int position, boolean first) {
+            this.text = text;
+            this.page = page;
+            this.position = position;
+            this.first = first;
+        }
+    }
+
+    private final List<Item> mItems = new ArrayList<>();
+    private boolean mHasRows;
+
+    public abstract TextView newView(ViewGroup parent);
+
+    // The text of the row the cursor is on, first for the first row of the results
+    public abstract CharSequence format(Cursor cursor, boolean first);
+
+    public void addText(CharSequence text) {
+        mItems.add(new Item(text, null, 0, false));
+        notifyItemInserted(mItems.size() - 1);
+    }
+
+    // page is kept, so it should be a copy that does not hold the database
+    public void addPage(Cursor page) {
+        if (page == null || page.getCount() == 0) return;
+        int start = mItems.size();
+        for (int i = 0; i < page.getCount(); i++) {
+            mItems.add(new Item(null, page, i, !mHasRows));
+            mHasRows = true;
+        }
+        notifyItemRangeInserted(start, page.getCount());
+    }
+
+    // The rows of a cursor in memory, as strings like the formatters read them
+    public static Cursor copy(Cursor cursor) {
+        if (cursor == null) return null;
+        String[] columns = cursor.getColumnNames();
+        MatrixCursor page = new MatrixCursor(columns, cursor.getCount());
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = cursor.isNull(i) ? null : cursor.getString(i);
+            }
+            page.addRow(row);
+        }
+        return page;
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new Holder(newView(parent));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        Item item = mItems.get(position);
+        CharSequence text = item.text;
+        if (item.page != null) {
+            item.page.moveToPosition(item.position);
+            text = format(item.page, item.first);
+        }
+        // Items are stacked, so the line break ending a row would show as an empty line
+        int n = text.length();
+        if (n > 0 && text.charAt(n - 1) == '\n') text = text.subSequence(0, n - 1);
+        holder.mTextView.setText(text);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItems.size();
+    }
+}
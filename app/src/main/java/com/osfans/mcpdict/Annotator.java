@@ -0,0 +1,60 @@
+package com.osfans.mcpdict;
+
+import com.osfans.mcpdict.Orth.HanZi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Readings of one language for every character of a text of any length.
+// The text is read in chunks, each chunk looks its new characters up with one DB.lookupBatch
+// and is handed to the listener before the next chunk is read.
+public class Annotator {
+    public interface Listener {
+        // readings[i] is the raw reading of chars[i], null when it is not a known Chinese character
+        void onChunk(String[] chars, String[] readings);
+    }
+
+    private final String mLang;
+    private final int mChunkSize;
+    // Readings already known, "" for characters without one
+    private final Map<String, String> mReadings = new HashMap<>();
+
+    public Annotator(String lang, int chunkSize) {
+        mLang = lang;
+        mChunkSize = Math.max(1, chunkSize);
+    }
+
+    // A reading that is already known, e.g. from the search results
+    public void put(String hz, String reading) {
+        mReadings.put(hz, reading == null ? "" : reading);
+    }
+
+    public void annotate(CharSequence text, Listener listener) {
+        int[] unicodes = text.codePoints().toArray();
+        for (int start = 0; start < unicodes.length; start += mChunkSize) {
+            int end = Math.min(unicodes.length, start + mChunkSize);
+            String[] chars = new String[end - start];
+            List<String> missing = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                String c = HanZi.toHz(unicodes[i]);
+                chars[i - start] = c;
+                if (HanZi.isHz(unicodes[i]) && !HanZi.isUnknown(unicodes[i]) && !mReadings.containsKey(c) && !missing.contains(c)) missing.add(c);
+            }
+            if (!missing.isEmpty()) {
+                Map<String, String[]> found = DB.lookupBatch(missing, new String[]{mLang});
+                for (String hz : missing) {
+                    String[] values = found.get(hz);
+                    put(hz, values == null ? null : DisplayHelper.getRawText(values[0]));
+                }
+            }
+            String[] readings = new String[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                String reading = mReadings.get(chars[i]);
+                readings[i] = reading == null || reading.isEmpty() ? null : reading;
+            }
+            listener.onChunk(chars, readings);
+        }
+    }
+}
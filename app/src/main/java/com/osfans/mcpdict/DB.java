@@ -1,25 +1,32 @@
 package com.osfans.mcpdict;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.graphics.Color;
+import android.os.CancellationSignal;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import com.osfans.mcpdict.Orth.*;
-import com.osfans.mcpdict.Util.UserDB;
 import com.readystatesoftware.sqliteasset.SQLiteAssetHelper;
 
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.osmdroid.util.GeoPoint;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DB extends SQLiteAssetHelper {
 
@@ -45,9 +52,7 @@ public class DB extends SQLiteAssetHelper {
     private static final String FL = "分類";
 
     public static final String MAP = " \uD83C\uDF0F ";
-    public static final String IS_FAVORITE = "is_favorite";
     public static final String VARIANTS = "variants";
-    public static final String COMMENT = "comment";
     public static final String INDEX = "索引";
     public static final String LANGUAGE = "語言";
     public static final String LABEL = "簡稱";
@@ -100,29 +105,152 @@ public class DB extends SQLiteAssetHelper {
         ALL, ISLAND, HZ, CURRENT, RECOMMEND, CUSTOM, DIVISION, AREA, EDITOR
     }
 
+    // Where a page of search results ends, so that the next page continues after it
+    public static class PageKey {
+        final long rank, id;
+        final String vaIndex;
+
+        PageKey(long rank, String vaIndex, long id) {
+            this.rank = rank;
+            this.vaIndex = vaIndex;
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d/%s/%d", rank, vaIndex, id);
+        }
+    }
+
+    public static final int PAGE_SIZE = 100;
+    private static final int LOOKUP_BATCH = 200;
+
     public static int COL_ALL_LANGUAGES = 1000;
     public static final String ALL_LANGUAGES = "*";
 
     private static final String TABLE_NAME = "mcpdict";
     private static final String TABLE_INFO = "info";
+    private static final String TABLE_TONELESS = "toneless";
+    private static final String TABLE_CHARSET = "charset";
+    private static final String TABLE_READINGS = "readings";
+    private static final String TABLE_STROKES = "strokes";
+    private static final String TABLE_RADICALS = "radicals";
+    private static final String[] OPTIONAL_TABLES = {TABLE_CHARSET, TABLE_READINGS, TABLE_STROKES, TABLE_RADICALS};
+    private static final String POSTINGS_NAME = "postings.bin";
+    // A stroke count or a range of them, after the radical of a 部首餘筆 input
+    private static final Pattern STROKES = Pattern.compile("^(-?[0-9]{1,2})(?:[-~](-?[0-9]{1,2}))?$");
+    // A reading token split into syllable and tone the way tools/make.py fills the readings table
+    private static final Pattern READING = Pattern.compile("^(.+?)([0-9]{1,2}[a-z]?)?$");
+    private static final Pattern READING_TOKEN = Pattern.compile("[0-9A-Za-z\\x{80}-\\x{10FFFF}]+");
+    // Marks a keyword searched in any tone
+    private static final String TONELESS = "?";
 
     private final static String[] JA_COLUMNS = new String[] {JA_KAN, JA_GO, JA_OTHER};
     private static String[] COLUMNS;
+    private static final Map<String, Integer> COLUMN_INDEX = new HashMap<>();
     private static String[] FQ_COLUMNS;
     private static String[] DICTIONARY_COLUMNS;
     private static String[] SHAPE_COLUMNS;
+    private static Set<String> TONELESS_COLUMNS;
+    private static boolean HAS_CHARSET, HAS_READINGS, HAS_STROKES;
     private static final String[] EDITOR_COLUMNS = new String[]{
             "作者", "錄入人", "維護人"
     };
     private static SQLiteDatabase db = null;
+    // Read-only connections to the dictionary, so searches and input suggestions do not queue on one connection
+    private static SQLiteDatabase[] readers = null;
+    private static final AtomicInteger nextReader = new AtomicInteger();
+    private static final int READER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static volatile LanguageRegistry registry = null;
+    private static volatile Snapshot snapshot = null;
+    private static Postings postings = null;
+    // The intro pages by language, filter and FQ, in characters. A 同音字表 alone can be long.
+    private static final int INTRO_CACHE_SIZE = 1 << 20;
+    private static final LruCache<String, String> INTROS = new LruCache<>(INTRO_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, String value) {
+            return key.length() + value.length();
+        }
+    };
+    private static volatile int introGeneration = 0;
+    private static String INPUT_KEY;
+    private static volatile VisibleColumns visibleColumns = null;
+    // Bumped whenever visibleColumns is dropped, so that a plan built from older preferences is not kept
+    private static int visibleColumnsGeneration = 0;
+    private static final Object visibleColumnsLock = new Object();
+    private static final Set<String> VISIBLE_COLUMNS_KEYS = new HashSet<>();
+    // Held here because SharedPreferences only keeps weak references to its listeners
+    private static final SharedPreferences.OnSharedPreferenceChangeListener preferenceListener = (prefs, key) -> {
+        if (key == null || VISIBLE_COLUMNS_KEYS.contains(key)) resetVisibleColumns();
+        // The intros depend on the filter and on the display styles, but not on the input written by every search
+        if (key == null || !key.contentEquals(INPUT_KEY)) {
+            introGeneration++;
+            INTROS.evictAll();
+        }
+    };
 
     public static void initialize(Context context) {
         if (db != null) return;
-        db = new DB(context).getWritableDatabase();
-        String userDbPath = UserDB.getDatabasePath();
-        db.execSQL("ATTACH DATABASE '" + userDbPath + "' AS user");
-        initArrays();
+        boolean hasSnapshot = loadSnapshot(context);
+        // The helper only copies or upgrades the database from the assets
+        DB helper = new DB(context);
+        String path = helper.getReadableDatabase().getPath();
+        helper.close();
+        SQLiteDatabase[] pool = new SQLiteDatabase[READER_COUNT];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        }
+        readers = pool;
+        db = pool[0];
+        postings = Postings.open(context.getAssets(), POSTINGS_NAME);
+        if (!hasSnapshot) {
+            registry = LanguageRegistry.load(db, TABLE_INFO);
+            initArrays();
+            writeSnapshot(context);
+        }
         initFQ();
+        registerPreferenceListener();
+    }
+
+    private static File getSnapshotFile(Context context) {
+        return new File(context.getDatabasePath(DB_NAME).getPath() + ".snapshot");
+    }
+
+    // On the thread of initialize: the layout and the languages come from the snapshot of this database version
+    // when there is one, and false is returned to read the tables instead
+    private static boolean loadSnapshot(Context context) {
+        Snapshot s = Snapshot.read(getSnapshotFile(context));
+        if (s == null) return false;
+        registry = LanguageRegistry.of(s.fields, s.rowids, s.values);
+        initTables(Arrays.asList(s.tables));
+        TONELESS_COLUMNS = new HashSet<>();
+        if (s.tonelessColumns != null) TONELESS_COLUMNS.addAll(Arrays.asList(s.tonelessColumns));
+        initLayout(s.columns);
+        snapshot = s;
+        return true;
+    }
+
+    private static void writeSnapshot(Context context) {
+        if (COLUMNS == null) return;
+        Map<String, String[]> labels = new HashMap<>();
+        Map<String, String[]> searchColumns = new HashMap<>();
+        for (String fq : FQ_COLUMNS) {
+            String order = fq.replace(_FQ, _ORDER);
+            labels.put(fq, query(LABEL, fq + " is not null and rowid > 1", null, order));
+            searchColumns.put(fq, query(LABEL, FIRST_FQ.replace(_FQ, _COLOR) + " is not null and rowid > 1", null, order));
+        }
+        String[] toneless = hasTable(TABLE_TONELESS) ? TONELESS_COLUMNS.toArray(new String[0]) : null;
+        List<String> tables = new ArrayList<>();
+        for (String table : OPTIONAL_TABLES) {
+            if (hasTable(table)) tables.add(table);
+        }
+        Snapshot.of(COLUMNS, registry, toneless, tables.toArray(new String[0]), labels, searchColumns).write(getSnapshotFile(context));
+    }
+
+    private static SQLiteDatabase getReader() {
+        SQLiteDatabase[] pool = readers;
+        if (pool == null) return db;
+        return pool[Math.floorMod(nextReader.getAndIncrement(), pool.length)];
     }
 
     public DB(Context context) {
@@ -146,10 +274,15 @@ public class DB extends SQLiteAssetHelper {
         return columns.toArray(new String[0]);
     }
 
-    private static String getCharsetSelect(int matchClause) {
+    private static String getCharsetSelect(int matchClause, String rowid) {
         // Get options and settings
         int charset = Pref.getInt(R.string.pref_key_charset);
         if (charset == 0) return "";
+        initArrays();
+        if (HAS_CHARSET) {
+            // Bit charset - 1 of the mask, looked up by rowid for each matched row
+            return String.format(Locale.US, " AND (SELECT mask FROM %s WHERE id = %s) & %d", TABLE_CHARSET, rowid, 1 << (charset - 1));
+        }
         String value = Pref.getStringArray(R.array.pref_values_charset)[charset];
         String selection;
         if (charset <= 5) {
@@ -164,6 +297,26 @@ public class DB extends SQLiteAssetHelper {
         return selection;
     }
 
+    // The charset bit to filter with, 0 for all characters, -1 when the database has no charset table
+    private static int getCharsetMask() {
+        int charset = Pref.getInt(R.string.pref_key_charset);
+        if (charset == 0) return 0;
+        initArrays();
+        return HAS_CHARSET ? 1 << (charset - 1) : -1;
+    }
+
+    // Only for the schemes typed by prefix, null for the others
+    private static InputIndex getInputIndex(String lang) {
+        if (db == null || TextUtils.isEmpty(lang) || !isMatchBegins(lang) || getColumnIndex(lang) < 0) return null;
+        initArrays();
+        return InputIndex.get(getReader(), TABLE_NAME, lang, HAS_CHARSET ? TABLE_CHARSET : null);
+    }
+
+    public static void prepareInput() {
+        if (isHzInput() || isYinInput() || isYinPrompt()) return;
+        getInputIndex(Pref.getShape());
+    }
+
     private static boolean isMatchBegins(String lang) {
         return lang.startsWith(CJ_) || (lang.startsWith(WB_) && !lang.contentEquals(WBH)) || lang.contentEquals(SR);
     }
@@ -172,7 +325,46 @@ public class DB extends SQLiteAssetHelper {
         return lang.contentEquals(BJJS) || lang.contentEquals(ZX);
     }
 
+    private static boolean hasToneless(String lang) {
+        initArrays();
+        if (lang.contentEquals(GY) || lang.contentEquals(VI)) return false;
+        return TONELESS_COLUMNS != null && TONELESS_COLUMNS.contains(lang);
+    }
+
+    private static String getRadical(String lang, String input) {
+        return lang.contentEquals(BS) ? input.substring(0, input.offsetByCodePoints(0, 1)) : "";
+    }
+
+    // {from, to} of "12", "12-14", "-1" or "3~5", or null
+    private static int[] parseStrokes(String s) {
+        Matcher matcher = STROKES.matcher(s);
+        if (!matcher.matches()) return null;
+        int from = Integer.parseInt(matcher.group(1));
+        int to = matcher.group(2) == null ? from : Integer.parseInt(matcher.group(2));
+        return new int[]{Math.min(from, to), Math.max(from, to)};
+    }
+
+    // One keyword per range with the strokes tables, one FTS keyword per stroke count without them
+    private static List<String> getStrokeKeywords(String lang, String input) {
+        List<String> keywords = new ArrayList<>();
+        String radical = getRadical(lang, input);
+        int[] range = parseStrokes(input.substring(radical.length()));
+        if (range == null) return keywords;
+        if (HAS_STROKES) {
+            keywords.add(radical + range[0] + (range[0] == range[1] ? "" : "~" + range[1]));
+            return keywords;
+        }
+        for (int i = range[0]; i <= range[1]; i++) {
+            keywords.add(radical + (i < 0 ? "f" + (-i) : String.valueOf(i)));
+        }
+        return keywords;
+    }
+
     private static List<String> normInput(String lang, String input) {
+        return normInput(lang, input, false);
+    }
+
+    private static List<String> normInput(String lang, String input, boolean toneless) {
         List<String> keywords = new ArrayList<>();
         if (lang.contentEquals(BS)) input = input.replace("-", "f");
         else if (isHzParts(lang)) {
@@ -215,6 +407,13 @@ public class DB extends SQLiteAssetHelper {
             List<String> allTones = null;
             if ((token.endsWith("?") || !Tones.hasTone(token)) && hasTone(lang)) {
                 if (token.endsWith("?")) token = token.substring(0, token.length()-1);
+                if (toneless && hasToneless(lang)) {
+                    // One lookup in the toneless table instead of a keyword for every tone
+                    Matcher matcher = Orthography.mPattern.matcher(token);
+                    String base = matcher.matches() ? matcher.group(1) : token;
+                    if (!TextUtils.isEmpty(base)) keywords.add(base + TONELESS);
+                    continue;
+                }
                 allTones = switch (lang) {
                     case GY -> MiddleChinese.getAllTones(token);
                     case CMN -> Mandarin.getAllTones(token);
@@ -234,6 +433,29 @@ public class DB extends SQLiteAssetHelper {
     }
 
     public static Cursor search() {
+        return search(null);
+    }
+
+    public static Cursor search(CancellationSignal signal) {
+        return search(signal, null);
+    }
+
+    // The key of the last row of a full page of search results, or null when no page follows
+    public static PageKey getPageKey(Cursor cursor) {
+        if (cursor == null || cursor.getCount() < PAGE_SIZE) return null;
+        int rank = cursor.getColumnIndex("rank");
+        int vaIndex = cursor.getColumnIndex("vaIndex");
+        int id = cursor.getColumnIndex("_id");
+        if (rank < 0 || vaIndex < 0 || id < 0) return null;
+        int position = cursor.getPosition();
+        cursor.moveToLast();
+        PageKey key = new PageKey(cursor.getLong(rank), cursor.getString(vaIndex), cursor.getLong(id));
+        cursor.moveToPosition(position);
+        return key;
+    }
+
+    // One page of results, following the page that ends at after, or the first page when after is null
+    public static Cursor search(CancellationSignal signal, PageKey after) {
         // Search for one or more keywords, considering mode and options
         String input = Pref.getInput();
         String lang = Pref.getLabel();
@@ -266,7 +488,16 @@ public class DB extends SQLiteAssetHelper {
             lang = HZ;
         } else if (HanZi.isPY(input) && !isLang(lang)) lang = CMN;
         if (isHzMode(lang) && searchType == SEARCH.YIN) searchType = SEARCH.HZ;
-        if (isHzMode(lang) && searchType == SEARCH.HZ) {     // Each character is a query
+        if (searchType != SEARCH.YI && (lang.contentEquals(BH) || lang.contentEquals(BS))) {     // Stroke counts or ranges of them, one per token
+            for (String token : input.split("[\\s,]+")) {
+                if (TextUtils.isEmpty(token)) continue;
+                List<String> strokes = getStrokeKeywords(lang, token);
+                if (strokes.isEmpty()) strokes = normInput(lang, token, true);
+                for (String keyword : strokes) {
+                    if (!keywords.contains(keyword)) keywords.add(keyword);
+                }
+            }
+        } else if (isHzMode(lang) && searchType == SEARCH.HZ) {     // Each character is a query
             for (int unicode : input.codePoints().toArray()) {
                 if (!HanZi.isHz(unicode)) continue;
                 String hz = HanZi.toHz(unicode);
@@ -274,7 +505,7 @@ public class DB extends SQLiteAssetHelper {
                 keywords.add(hz);
             }
         } else if (searchType == SEARCH.HZ || searchType == SEARCH.YIN) {                          // Each contiguous run of non-separator and non-comma characters is a query
-            keywords.addAll(normInput(lang, input));
+            keywords.addAll(normInput(lang, input, true));
         }
         if (keywords.isEmpty()) return null;
 
@@ -282,63 +513,199 @@ public class DB extends SQLiteAssetHelper {
         boolean allowVariants = isHzMode(lang) && Pref.getBool(R.string.pref_key_allow_variants, true) && (SEARCH.HZ == searchType);
         String[] columns = getMatchColumns(lang, searchType, allowVariants);
 
+        // Same keywords in the same mode and view as a recent search
+        Projection plan = Projection.plan();
+        String cacheKey = ResultCache.getKey(keywords, lang, searchType, Pref.getFilter(),
+                Pref.getInt(R.string.pref_key_charset), allowVariants, plan.getKey(), after);
+        Cursor cached = ResultCache.get(cacheKey);
+        if (cached != null) return cached;
+
         // Build inner query statement (a union query returning the id's of matching Chinese characters)
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         qb.setTables(TABLE_NAME);
         List<String> queries = new ArrayList<>();
         List<String> args = new ArrayList<>();
 
+        // A homophone search in one language reads the indexed readings table instead of the wide rows
+        int langId = 0;
+        if (HAS_READINGS && searchType == SEARCH.YIN && columns.length == 1 && columns[0].contentEquals(lang) && isLang(lang)) {
+            LanguageRegistry.Language language = getLanguage(lang);
+            if (language != null) langId = language.rowid;
+        }
+
         for (int i = 0; i < keywords.size(); i++) {
             String key = keywords.get(i);
             String variant = allowVariants ? ("'" + key + "'") : "null";
             String[] projection = {"rowid AS _id", i + " AS rank", "offsets(mcpdict) AS vaIndex", variant + " AS variants"};
-            String sel = (key.startsWith("%") && key.endsWith("%")) ? "LIKE" : "MATCH";
+            if (HAS_STROKES && searchType != SEARCH.YI && (lang.contentEquals(BH) || lang.contentEquals(BS))) {
+                String radical = getRadical(lang, key);
+                int[] range = parseStrokes(key.substring(radical.length()));
+                // Other tokens are matched in mcpdict as before
+                if (range != null) {
+                    String selection = String.format(Locale.US, "strokes BETWEEN %d AND %d", range[0], range[1]);
+                    if (!radical.isEmpty()) {
+                        selection = "radical = ? AND " + selection;
+                        args.add(radical);
+                    }
+                    queries.add(String.format(Locale.US, "SELECT id AS _id, %d AS rank, printf('%%05d', strokes + 100) AS vaIndex, %s AS variants FROM %s WHERE %s",
+                            i, variant, radical.isEmpty() ? TABLE_STROKES : TABLE_RADICALS, selection));
+                    continue;
+                }
+            }
+            boolean toneless = key.endsWith(TONELESS);
+            String term = toneless ? key.substring(0, key.length() - TONELESS.length()) : key;
+            // The characters of an exact reading straight from the mapped postings. Their cells are only in mcpdict,
+            // so SQLite still joins them to their rows there, with the charset filter and the paging of the other keywords.
+            int reading = langId > 0 && !toneless && postings != null ? postings.find(langId, term) : -1;
+            if (reading >= 0) {
+                int[] rowids = postings.getRowids(langId, reading);
+                int[] positions = postings.getPositions(langId, reading);
+                StringBuilder values = new StringBuilder();
+                for (int k = 0; k < rowids.length; k++) {
+                    if (k > 0) values.append(",");
+                    values.append(String.format(Locale.US, "(%d,'%05d')", rowids[k], positions[k]));
+                }
+                queries.add(String.format(Locale.US, "SELECT column1 AS _id, %d AS rank, column2 AS vaIndex, %s AS variants FROM (VALUES %s)",
+                        i, variant, values));
+                continue;
+            }
+            if (langId > 0 && READING_TOKEN.matcher(term).matches()) {
+                String selection = String.format(Locale.US, "lang_id = %d AND syllable = ?", langId);
+                Matcher matcher = READING.matcher(term);
+                matcher.matches();
+                args.add(toneless ? term : matcher.group(1));
+                if (!toneless) {
+                    if (matcher.group(2) == null) selection += " AND tone IS NULL";
+                    else {
+                        selection += " AND tone = ?";
+                        args.add(matcher.group(2));
+                    }
+                }
+                queries.add(String.format(Locale.US, "SELECT id AS _id, %d AS rank, printf('%%05d', MIN(pos)) AS vaIndex, %s AS variants FROM %s WHERE %s GROUP BY id",
+                        i, variant, TABLE_READINGS, selection));
+                continue;
+            }
+            if (toneless && hasToneless(lang)) {
+                String[] tonelessProjection = {"docid AS _id", i + " AS rank", "offsets(toneless) AS vaIndex", variant + " AS variants"};
+                queries.add(SQLiteQueryBuilder.buildQueryString(false, TABLE_TONELESS, tonelessProjection,
+                        String.format("`%s` MATCH ?", lang), null, null, null, null));
+                args.add(key.substring(0, key.length() - TONELESS.length()));
+                continue;
+            }
+            boolean isLike = key.startsWith("%") && key.endsWith("%");
+            String match = isLike ? null : matchTerm(columns, key);
+            if (match != null) {
+                queries.add(qb.buildQuery(projection, String.format("%s MATCH ?", TABLE_NAME), null, null, null, null));
+                args.add(match);
+                continue;
+            }
+            String sel = isLike ? "LIKE" : "MATCH";
             for (String col : columns) {
                 queries.add(qb.buildQuery(projection, String.format("`%s` %s ?", col, sel), null, null, null, null));
                 args.add(key);
             }
         }
         String query = qb.buildUnionQuery(queries.toArray(new String[0]), null, null);
+        // One row per character and keyword, so that (rank, vaIndex, _id) orders the results strictly.
+        // vaIndex comes from the row with the lowest rank, the fixed width rank prefix makes MIN pick that row.
+        query = String.format("SELECT _id, CAST(substr(rankIndex, 1, 5) AS INTEGER) AS rank, substr(rankIndex, 6) AS vaIndex, variants FROM " +
+                "(SELECT _id, MIN(printf('%%05d', rank) || IFNULL(vaIndex, '')) AS rankIndex, variants FROM (%s) GROUP BY _id, variants)", query);
 
         // Build outer query statement (returning all information about the matching Chinese characters)
-        qb.setTables("(" + query + ") AS u, mcpdict AS v LEFT JOIN user.favorite AS w ON v.漢字 = w.hz");
-        qb.setDistinct(true);
-        String[] projection = {"v.*", "_id",
-                   "v.漢字 AS `漢字`", "variants",
-                   "timestamp IS NOT NULL AS is_favorite", "comment"};
-        String selection = "u._id = v.rowid" + getCharsetSelect(1);
-        query = qb.buildQuery(projection, selection, null, null, "rank,vaIndex", "0,100");
+        qb.setTables("(" + query + ") AS u, mcpdict AS v");
+        String[] projection = plan.toSelect("v", "_id", "variants", "rank", "vaIndex");
+        String selection = "u._id = v.rowid" + getCharsetSelect(1, "v.rowid");
+        if (after != null) {
+            selection += String.format(Locale.US, " AND (rank > %d OR rank = %d AND (vaIndex > ? OR vaIndex = ? AND _id > %d))",
+                    after.rank, after.rank, after.id);
+            args.add(after.vaIndex);
+            args.add(after.vaIndex);
+        }
+        query = qb.buildQuery(projection, selection, null, null, "rank,vaIndex,_id", String.valueOf(PAGE_SIZE));
 
-        // Search
-        return db.rawQuery(query, args.toArray(new String[0]));
+        // Search, and fill the first window here so that the query can be canceled
+        Cursor cursor = getReader().rawQuery(query, args.toArray(new String[0]), signal);
+        try {
+            cursor.getCount();
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+        return ResultCache.put(cacheKey, cursor);
     }
 
     public static Cursor directSearch(String hz) {
         // Search for a single Chinese character without any conversions
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-        qb.setTables("mcpdict AS v LEFT JOIN user.favorite AS w ON v.漢字 = w.hz");
-        String[] projection = {"v.*", "v.rowid AS _id",
-                   "v.漢字 AS 漢字", "NULL AS variants",
-                   "timestamp IS NOT NULL AS is_favorite", "comment"};
+        qb.setTables("mcpdict AS v");
+        String[] projection = Projection.plan().toSelect("v", "v.rowid AS _id", "NULL AS variants");
         String selection = "v.漢字 MATCH ?";
         String query = qb.buildQuery(projection, selection, null, null, null, "0,100");
         String[] args = {hz};
-        return db.rawQuery(query, args);
+        return getReader().rawQuery(query, args);
     }
 
-    public static Cursor getInputCursor(String input) {
-        if (TextUtils.isEmpty(input) || isHzInput()) return null;
+    // Cells of the given columns for many characters at once, by character. Each statement matches
+    // up to LOOKUP_BATCH characters with one OR query; missing characters and columns are left out or null.
+    public static Map<String, String[]> lookupBatch(List<String> hzs, String[] columns) {
+        Map<String, String[]> result = new HashMap<>();
+        if (hzs.isEmpty() || db == null) return result;
+        StringBuilder select = new StringBuilder(String.format("`%s`", HZ));
+        for (String col : columns) {
+            select.append(getColumnIndex(col) >= 0 ? String.format(", `%s`", col) : ", NULL");
+        }
+        String query = String.format("SELECT %s FROM %s WHERE `%s` MATCH ?", select, TABLE_NAME, HZ);
+        for (int start = 0; start < hzs.size(); start += LOOKUP_BATCH) {
+            List<String> terms = new ArrayList<>();
+            for (String hz : hzs.subList(start, Math.min(hzs.size(), start + LOOKUP_BATCH))) {
+                if (!TextUtils.isEmpty(hz)) terms.add(String.format("\"%s\"", hz.replace("\"", "")));
+            }
+            if (terms.isEmpty()) continue;
+            Cursor cursor = getReader().rawQuery(query, new String[]{String.join(" OR ", terms)});
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                String[] values = new String[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = cursor.getString(i + 1);
+                }
+                result.putIfAbsent(cursor.getString(0), values);
+            }
+            cursor.close();
+        }
+        return result;
+    }
+
+    private static String getInputLang() {
         String lang = Pref.getShape();
-        boolean isYinPrompt = isYinPrompt();
         if (isYinInput() || isYinPrompt()) lang = Pref.getLabel();
         if (TextUtils.isEmpty(lang) || lang.contentEquals(HZ)) lang = CMN;
+        return lang;
+    }
+
+    // Everything besides the input that getInputCursor depends on
+    public static String getInputScheme() {
+        return String.format(Locale.US, "%s/%s/%d/%b", Pref.getShape(), getInputLang(),
+                Pref.getInt(R.string.pref_key_charset), Pref.getBool(R.string.pref_key_allow_variants, true));
+    }
+
+    // The keywords getInputCursor matches in the input column, or null when it matches the input as is.
+    // 音碼提示 matches the whole input as one exact 漢字 token, so a longer input is never a narrowing of a shorter one,
+    // and in 音碼輸入 an input only narrows the last one when the last keywords were matched as prefixes.
+    public static List<String> getInputKeywords(String input) {
+        if (TextUtils.isEmpty(input) || isHzInput() || isYinPrompt()) return null;
+        return normInput(getInputLang(), input);
+    }
+
+    public static Cursor getInputCursor(String input) {
+        if (TextUtils.isEmpty(input) || isHzInput()) return null;
+        String lang = getInputLang();
+        boolean isYinPrompt = isYinPrompt();
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         qb.setTables(TABLE_NAME);
         String[] projection = {HZ, lang, "rowid as _id"};
         String selection = "";
         String field = isYinPrompt ? HZ : lang;
         if (isYinPrompt) {
-            String charset = getCharsetSelect(2);
+            String charset = getCharsetSelect(2, TABLE_NAME + ".rowid");
             String va = "";
             if (Pref.getBool(R.string.pref_key_allow_variants, true)) {
                 va = " OR " + VA + ":" + input;
@@ -350,9 +717,9 @@ public class DB extends SQLiteAssetHelper {
             }
             selection += String.format(" AND %s is not null", lang);
             String query = qb.buildQuery(projection, selection, null, null, lang, "0,100");
-            return db.rawQuery(query, null);
+            return getReader().rawQuery(query, null);
         } else {
-            String charset = getCharsetSelect(0);
+            String charset = getCharsetSelect(0, TABLE_NAME + ".rowid");
             if (TextUtils.isEmpty(charset)) {
                 selection = String.format("%s MATCH ?", field);
             } else if (charset.contains("AND")) {
@@ -361,8 +728,11 @@ public class DB extends SQLiteAssetHelper {
             String query = qb.buildQuery(projection, selection, null, null, lang, "0,100");
             List<String> keywords = normInput(field, input);
             if (keywords.isEmpty()) return null;
+            InputIndex index = getInputIndex(lang);
+            int mask = getCharsetMask();
+            if (index != null && mask >= 0) return index.query(keywords, mask, 100);
             String arg = String.join(" OR ", keywords);
-            return db.rawQuery(query, new String[]{arg});
+            return getReader().rawQuery(query, new String[]{arg});
         }
     }
 
@@ -371,20 +741,50 @@ public class DB extends SQLiteAssetHelper {
         ORDER = FQ.replace(_FQ, _ORDER);
         COLOR = FQ.replace(_FQ, _COLOR);
         DIVISIONS = getFieldByLabel(HZ, FQ).split(",");
-        SEARCH_COLUMNS = queryLabel(FIRST_FQ.replace(_FQ, _COLOR) + " is not null");
-        LABELS = queryLabel(FQ + " is not null");
+        Snapshot s = snapshot;
+        if (s != null && s.labels.containsKey(FQ)) {
+            SEARCH_COLUMNS = s.searchColumns.get(FQ);
+            LABELS = s.labels.get(FQ);
+        } else {
+            SEARCH_COLUMNS = queryLabel(FIRST_FQ.replace(_FQ, _COLOR) + " is not null");
+            LABELS = queryLabel(FQ + " is not null");
+        }
+        resetVisibleColumns();
     }
 
     private static void initArrays() {
-        if (COLUMNS != null || db == null) return;
+        if (COLUMNS != null || db == null || registry == null) return;
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         qb.setTables(TABLE_NAME);
         String[] projection = {"*"};
         String selection = "rowid = 1";
         String query = qb.buildQuery(projection, selection,  null, null, null, null);
         Cursor cursor = db.rawQuery(query, null);
-        cursor.moveToFirst();
-        COLUMNS = cursor.getColumnNames();
+        String[] columns = cursor.getColumnNames();
+        cursor.close();
+
+        // Databases built before these tables fall back to one keyword per tone, to 分類 LIKE
+        // and to FTS matches of readings and stroke counts
+        List<String> tables = new ArrayList<>();
+        for (String table : OPTIONAL_TABLES) {
+            if (hasTable(table)) tables.add(table);
+        }
+        initTables(tables);
+        TONELESS_COLUMNS = new HashSet<>();
+        if (hasTable(TABLE_TONELESS)) {
+            cursor = db.rawQuery(String.format("SELECT * FROM %s LIMIT 0", TABLE_TONELESS), null);
+            TONELESS_COLUMNS.addAll(Arrays.asList(cursor.getColumnNames()));
+            cursor.close();
+        }
+        initLayout(columns);
+    }
+
+    // Column positions and the column groups derived from them and from the info fields
+    private static void initLayout(String[] columns) {
+        for (int i = columns.length - 1; i >= 0; i--) {
+            COLUMN_INDEX.put(columns[i], i);
+        }
+        COLUMNS = columns;
         COL_HZ = getColumnIndex(HZ);
         COL_SW = getColumnIndex(SW);
         COL_ZX = getColumnIndex(ZX);
@@ -401,7 +801,6 @@ public class DB extends SQLiteAssetHelper {
         COL_LAST_INFO = COLUMNS.length - 2;
         COL_FIRST_SHAPE = COL_VA + 2;
         COL_LAST_SHAPE = COL_LAST_INFO;
-        cursor.close();
         ArrayList<String> arrayList = new ArrayList<>();
         for(int col = COL_FIRST_DICT; col <= COL_LAST_DICT; col++) {
             arrayList.add(getLanguageByLabel(COLUMNS[col]));
@@ -420,17 +819,25 @@ public class DB extends SQLiteAssetHelper {
         arrayList.add(Pref.getString(R.string.shape_code));
         arrayList.addAll(Arrays.asList(COLUMNS).subList(COL_FIRST_SHAPE, COL_LAST_SHAPE + 1));
         SHAPE_COLUMNS = arrayList.toArray(new String[0]);
-    
-        qb.setTables(TABLE_INFO);
-        query = qb.buildQuery(projection, selection,  null, null, null, null);
-        cursor = db.rawQuery(query, null);
-        cursor.moveToFirst();
+
         arrayList.clear();
-        for(String s: cursor.getColumnNames()) {
+        for(String s: registry.getFields()) {
             if (s.endsWith(_FQ)) arrayList.add(s);
         }
         FQ_COLUMNS = arrayList.toArray(new String[0]);
+    }
+
+    private static void initTables(List<String> tables) {
+        HAS_CHARSET = tables.contains(TABLE_CHARSET);
+        HAS_READINGS = tables.contains(TABLE_READINGS);
+        HAS_STROKES = tables.contains(TABLE_STROKES) && tables.contains(TABLE_RADICALS);
+    }
+
+    private static boolean hasTable(String table) {
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table});
+        boolean exists = cursor.getCount() > 0;
         cursor.close();
+        return exists;
     }
 
     public static String[] getDictionaryColumns() {
@@ -444,11 +851,15 @@ public class DB extends SQLiteAssetHelper {
     }
 
     private static String[] query(String col, String selection, String args) {
+        return query(col, selection, args, ORDER);
+    }
+
+    private static String[] query(String col, String selection, String args, String order) {
         if (db == null) return null;
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         qb.setTables(TABLE_INFO);
         String[] projection = {col};
-        String query = qb.buildQuery(projection, selection,  null, null, ORDER, null);
+        String query = qb.buildQuery(projection, selection,  null, null, order, null);
         Cursor cursor = db.rawQuery(query, TextUtils.isEmpty(args) ? null : new String[]{String.format("\"%s\"", args)});
         cursor.moveToFirst();
         int n = cursor.getCount();
@@ -475,7 +886,7 @@ public class DB extends SQLiteAssetHelper {
         qb.setTables(TABLE_INFO);
         String[] projection = {LANGUAGE, "rowid as _id"};
         String query = qb.buildQuery(projection, LANGUAGE + INDEX + " LIKE ? and 音節數 is not null",  null, null, ORDER, null);
-        Cursor cursor = db.rawQuery(query, new String[]{"%"+constraint+"%"});
+        Cursor cursor = getReader().rawQuery(query, new String[]{"%"+constraint+"%"});
         if (cursor.getCount() > 0) return cursor;
         cursor.close();
         return getLanguageCursor("");
@@ -518,10 +929,8 @@ public class DB extends SQLiteAssetHelper {
 
     public static int getColumnIndex(String lang) {
         initArrays();
-        for (int i = 0; i < COLUMNS.length; i++) {
-            if (COLUMNS[i].contentEquals(lang)) return i;
-        }
-        return -1;
+        Integer i = COLUMN_INDEX.get(lang);
+        return i == null ? -1 : i;
     }
 
     public static String getColumn(int i) {
@@ -537,7 +946,67 @@ public class DB extends SQLiteAssetHelper {
         return String.join(" OR ", array);
     }
 
+    // A single token of the simple tokenizer, ASCII letters and digits and any other than ASCII, optionally a prefix.
+    // Other characters, like the - in ab-c, split the keyword into several tokens and col: would only restrict the first.
+    private static boolean isPlainTerm(String s) {
+        return !TextUtils.isEmpty(s) && s.matches("[A-Za-z0-9\\x{80}-\\x{10FFFF}]+\\*?")
+                && !s.matches("AND|OR|NOT|NEAR");
+    }
+
+    // One FTS expression "col1:key OR col2:key ..." for a keyword searched in several columns,
+    // or null when the keyword is not a single term and needs one query per column
+    private static String matchTerm(String[] cols, String key) {
+        if (cols.length <= 1) return null;
+        String term = key;
+        if (term.length() > 2 && term.startsWith("'") && term.endsWith("'")) term = term.substring(1, term.length() - 1);
+        if (term.length() > 2 && term.startsWith("\"") && term.endsWith("\"")) term = term.substring(1, term.length() - 1);
+        if (!isPlainTerm(term)) return null;
+        for (String col : cols) {
+            if (col.contentEquals(TABLE_NAME)) return term;
+            if (!isPlainTerm(col)) return null;
+        }
+        return matchColumns(cols, term);
+    }
+
     public static String[] getVisibleColumns() {
+        return getVisiblePlan().getLabels();
+    }
+
+    public static VisibleColumns getVisiblePlan() {
+        VisibleColumns plan = visibleColumns;
+        if (plan != null) return plan;
+        int generation;
+        synchronized (visibleColumnsLock) {
+            generation = visibleColumnsGeneration;
+        }
+        plan = new VisibleColumns(queryVisibleColumns());
+        synchronized (visibleColumnsLock) {
+            // Not kept before the database is open, the filters need it
+            if (db != null && generation == visibleColumnsGeneration) visibleColumns = plan;
+        }
+        return plan;
+    }
+
+    private static void resetVisibleColumns() {
+        synchronized (visibleColumnsLock) {
+            visibleColumnsGeneration++;
+            visibleColumns = null;
+        }
+    }
+
+    private static void registerPreferenceListener() {
+        int[] keys = {R.string.pref_key_filters, R.string.pref_key_language, R.string.pref_key_pfg,
+                R.string.pref_key_area_level, R.string.pref_key_province, R.string.pref_key_recommend,
+                R.string.pref_key_editor, R.string.pref_key_division, R.string.pref_key_custom_languages,
+                R.string.pref_key_fq};
+        for (int key : keys) {
+            VISIBLE_COLUMNS_KEYS.add(Pref.getString(key));
+        }
+        INPUT_KEY = Pref.getString(R.string.pref_key_input);
+        Pref.get().registerOnSharedPreferenceChangeListener(preferenceListener);
+    }
+
+    private static String[] queryVisibleColumns() {
         FILTER filter = Pref.getFilter();
         String label = Pref.getLabel();
         switch (filter) {
@@ -606,32 +1075,23 @@ public class DB extends SQLiteAssetHelper {
     }
 
     public static boolean hasTone(String lang) {
-        return getToneName(lang) != null;
+        return ToneTable.get(lang) != null;
+    }
+
+    private static LanguageRegistry.Language find(String selection, String lang) {
+        // Nothing is found before initialize has loaded the languages
+        if (registry == null) return null;
+        return registry.find(db, TABLE_INFO, selection, lang);
+    }
+
+    public static LanguageRegistry.Language getLanguage(String lang) {
+        return find(LABEL, lang);
     }
 
     public static String getField(String selection, String lang, String field) {
-        if (db == null) return "";
-        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-        qb.setTables(TABLE_INFO);
-        String[] projection = {String.format("\"%s\", \"%s\"", field, selection)};
-        String query = qb.buildQuery(projection, selection + " MATCH ?",  null, null, null, null);
-        Cursor cursor = db.rawQuery(query, new String[]{String.format("\"%s\"", lang)});
-        String s = "";
-        int n = cursor.getCount();
-        if (n > 0) {
-            cursor.moveToFirst();
-            s = cursor.getString(0);
-            for (int i = 1; i < n; i++) {
-                cursor.moveToNext();
-                String l = cursor.getString(1);
-                if (!TextUtils.isEmpty(l) && l.contentEquals(lang)) {
-                    s = cursor.getString(0);
-                }
-            }
-        }
-        cursor.close();
-        if (TextUtils.isEmpty(s)) s = "";
-        return s;
+        LanguageRegistry.Language language = find(selection, lang);
+        if (language == null) return "";
+        return language.get(field);
     }
 
     public static String getFieldByLabel(String lang, String field) {
@@ -656,11 +1116,12 @@ public class DB extends SQLiteAssetHelper {
 
     public static int getColor(String lang, int i) {
         initArrays();
-        String c = getFieldByLabel(lang, COLOR);
-        if (TextUtils.isEmpty(c)) c = getFieldByLabel(lang, FIRST_FQ.replace(_FQ, _COLOR));
-        if (TextUtils.isEmpty(c)) return Color.BLACK;
-        if (c.contains(",")) c = c.split(",")[i];
-        return Color.parseColor(c);
+        LanguageRegistry.Language language = getLanguage(lang);
+        if (language == null) return Color.BLACK;
+        int[] colors = language.getColors(COLOR);
+        if (colors == null) colors = language.getColors(FIRST_FQ.replace(_FQ, _COLOR));
+        if (colors == null) return Color.BLACK;
+        return colors[i];
     }
 
     public static int getColor(String lang) {
@@ -671,34 +1132,61 @@ public class DB extends SQLiteAssetHelper {
         return getColor(lang, 1);
     }
 
+    private static String getHexColor(String lang, int i) {
+        LanguageRegistry.Language language = getLanguage(lang);
+        String[] colors = null;
+        if (language != null) {
+            colors = language.getHexColors(COLOR);
+            if (colors == null) colors = language.getHexColors(FIRST_FQ.replace(_FQ, _COLOR));
+        }
+        if (colors == null) return String.format("#%06X", getColor(lang, i) & 0xFFFFFF);
+        return colors[i];
+    }
+
     public static String getHexColor(String lang) {
-        return String.format("#%06X", getColor(lang) & 0xFFFFFF);
+        return getHexColor(lang, 0);
     }
 
     public static String getHexSubColor(String lang) {
-        return String.format("#%06X", getSubColor(lang) & 0xFFFFFF);
+        return getHexColor(lang, 1);
     }
 
     public static String getDictName(String lang) {
-        return getFieldByLabel(lang, "網站");
+        LanguageRegistry.Language language = getLanguage(lang);
+        return language == null ? "" : language.getDictName();
     }
 
     public static String getDictLink(String lang) {
-        return getFieldByLabel(lang, "網址");
+        LanguageRegistry.Language language = getLanguage(lang);
+        return language == null ? "" : language.getDictLink();
     }
 
     public static String getLanguageByLabel(String label) {
         return getFieldByLabel(label, LANGUAGE);
     }
 
+    // Taken before an intro is built, so that one built from preferences changed meanwhile is put under an old generation
+    private static String getIntroKey(String kind, String language) {
+        return ResultCache.getKey(kind, language, Pref.getFilter(), FQ, introGeneration);
+    }
+
+    private static String putCachedIntro(String key, String intro) {
+        if (registry != null && LABELS != null) INTROS.put(key, intro);
+        return intro;
+    }
+
     private static String _getIntro(String language) {
         if (TextUtils.isEmpty(language) || Pref.getFilter() == FILTER.HZ) language = HZ;
-        String intro = TextUtils.isEmpty(language) ? "" : getFieldByLanguage(language, "說明").replace("\n", "<br>");
+        String key = getIntroKey("intro", language);
+        String cached = INTROS.get(key);
+        if (cached != null) return cached;
+        LanguageRegistry.Language info = find(LANGUAGE, language);
+        String intro = info == null ? "" : info.get("說明").replace("\n", "<br>");
         if (language.contentEquals(HZ)) {
             StringBuilder sb = new StringBuilder();
             String[] fields = new String[] {"版本","字數"};
             for (String field: fields) {
-                sb.append(String.format(Locale.getDefault(), "%s：%s<br>", field, getFieldByLanguage(language, field)));
+                sb.append(String.format(Locale.getDefault(), "%s：%s<br>", field, info == null ? "" : info.get(field)));
             }
             sb.append(intro);
             intro = sb.toString();
@@ -710,7 +1198,7 @@ public class DB extends SQLiteAssetHelper {
             fields.add("");
             for (String field: fields) {
                 if (TextUtils.isEmpty(field)) sb.append("<br>");
-                String value = getFieldByLanguage(language, field);
+                String value = info == null ? "" : info.get(field);
                 if (!TextUtils.isEmpty(value) && !value.contentEquals("/")) {
                     if (field.endsWith(_FQ)) {
                         value = value.replace(","," ,").split(",")[0].trim();
@@ -722,12 +1210,15 @@ public class DB extends SQLiteAssetHelper {
             sb.append(intro);
             intro = sb.toString();
         }
-        return intro;
+        return putCachedIntro(key, intro);
     }
 
     public static String getIntroText(String language) {
         initArrays();
         if (TextUtils.isEmpty(language)) language = Pref.getLanguage();
+        String key = getIntroKey("text", language);
+        String cached = INTROS.get(key);
+        if (cached != null) return cached;
         String intro = _getIntro(language);
         if (TextUtils.isEmpty(language) || language.contentEquals(HZ) || Pref.getFilter() == FILTER.HZ) {
             StringBuilder sb = new StringBuilder();
@@ -740,9 +1231,10 @@ public class DB extends SQLiteAssetHelper {
             }
             sb.append("</tr>");
             for (String l : LABELS) {
+                LanguageRegistry.Language info = getLanguage(l);
                 sb.append("<tr>");
                 for (String field: fields) {
-                    sb.append(String.format("<td>%s</td>", getFieldByLabel(l, field)));
+                    sb.append("<td>").append(info == null ? "" : info.get(field)).append("</td>");
                 }
                 sb.append("</tr>");
             }
@@ -750,9 +1242,25 @@ public class DB extends SQLiteAssetHelper {
             intro = sb.toString();
         } else {
             String phonology = getFieldByLanguage(language, "音系").replace("\n", "<br>");
-            intro = String.format(Locale.getDefault(), "<h1>%s</h1>%s<h2>音系說明</h2>%s<h2>同音字表</h2>", language, intro, phonology);
+            intro = String.format(Locale.getDefault(), "<h1>%s</h1>%s<h2>音系說明</h2>%s<h2>同音字表</h2>%s", language, intro, phonology, getHomophoneTable(language));
         }
-        return intro;
+        return putCachedIntro(key, intro);
+    }
+
+    // Every reading of a language with its characters, from the postings
+    private static String getHomophoneTable(String language) {
+        LanguageRegistry.Language info = find(LANGUAGE, language);
+        if (postings == null || info == null) return "";
+        StringBuilder sb = new StringBuilder();
+        int n = postings.getReadingCount(info.rowid);
+        for (int i = 0; i < n; i++) {
+            sb.append(DisplayHelper.formatIPA(info.label, postings.getReading(info.rowid, i))).append("：");
+            for (int rowid : postings.getRowids(info.rowid, i)) {
+                sb.append(postings.getHz(rowid));
+            }
+            sb.append("<br>");
+        }
+        return sb.toString();
     }
 
     public static String getIntro() {
@@ -760,16 +1268,6 @@ public class DB extends SQLiteAssetHelper {
         return _getIntro(Pref.getLanguage());
     }
 
-    public static JSONObject getToneName(String lang) {
-        String s = getFieldByLabel(lang, "聲調");
-        if (TextUtils.isEmpty(s)) return null;
-        try {
-            return new JSONObject(s);
-        } catch (JSONException ignored) {
-        }
-        return null;
-    }
-
     public static GeoPoint parseLocation(String location) {
         if (TextUtils.isEmpty(location)) return null;
         location = location.replace("[", "").replace("]", "").strip();
@@ -784,14 +1282,13 @@ public class DB extends SQLiteAssetHelper {
     }
 
     public static GeoPoint getPoint(String lang) {
-        String location = getFieldByLabel(lang, "經緯度");
-        return parseLocation(location);
+        LanguageRegistry.Language language = getLanguage(lang);
+        return language == null ? null : language.getPoint();
     }
 
     public static int getSize(String lang) {
-        String s = getFieldByLabel(lang, "地圖級別");
-        if (TextUtils.isEmpty(s)) return 0;
-        return Integer.parseInt(s);
+        LanguageRegistry.Language language = getLanguage(lang);
+        return language == null ? 0 : language.getSize();
     }
 
     public static boolean isLang(String lang) {
@@ -811,15 +1308,8 @@ public class DB extends SQLiteAssetHelper {
 
     public static String getWebFq(String lang) {
         initArrays();
-        String s = getFieldByLabel(lang, FQ);
-        if (TextUtils.isEmpty(s)) return "";
-        if (s.contains(",")) {
-            s = s.replace(",", " ,");
-            String[] fs = s.split(",");
-            if (fs.length < 2 || TextUtils.isEmpty(fs[1].trim())) return fs[0].trim();
-            return fs[1].trim();
-        }
-        return s;
+        LanguageRegistry.Language language = getLanguage(lang);
+        return language == null ? "" : language.getWebFq(FQ);
     }
 
     private static String formatIDS(String s) {
@@ -845,8 +1335,9 @@ public class DB extends SQLiteAssetHelper {
         String s = HanZi.toUnicode(hz);
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("<p>【統一碼】%s %s</p>", s, HanZi.getUnicodeExt(hz)));
+        Projection projection = Projection.plan();
         for (int j = DB.COL_FIRST_INFO; j <= DB.COL_LAST_INFO; j++) {
-            s = cursor.getString(j);
+            s = projection.getString(cursor, getColumn(j));
             if (TextUtils.isEmpty(s)) continue;
             if (j == COL_ZX || j == COL_BJJS) s = formatIDS(s);
             s = s.replace(",", " ");
@@ -1,8 +1,11 @@
 package com.osfans.mcpdict;
 
 import android.database.Cursor;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.GestureDetector;
@@ -31,6 +34,9 @@ import com.osfans.mcpdict.Adapter.StringArrayAdapter;
 import com.osfans.mcpdict.DB.FILTER;
 import com.osfans.mcpdict.UI.SearchView;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class DictFragment extends Fragment implements RefreshableFragment {
 
     private static final String TAG = "DictFragment";
@@ -45,6 +51,12 @@ public class DictFragment extends Fragment implements RefreshableFragment {
     private LinearLayout layoutFilters;
     private View buttonFullscreen;
     private boolean initialized = false;
+    private static final int SEARCH_DELAY = 100;
+    private final ExecutorService mSearchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private CancellationSignal mCancellationSignal;
+    private Runnable mPendingSearch;
+    private int mGeneration = 0;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -312,21 +324,59 @@ public class DictFragment extends Fragment implements RefreshableFragment {
 
     @Override
     public void refresh() {
-        new AsyncTask<Void, Void, Cursor>() {
-            @Override
-            protected Cursor doInBackground(Void... params) {
-                Log.d(TAG, "start search " + Pref.getInput());
-                return DB.search();
-            }
-            @Override
-            protected void onPostExecute(Cursor cursor) {
-                if (fragmentResult != null) {
-                    Log.d(TAG, "search finished");
-                    fragmentResult.setData(cursor);
-                    fragmentResult.scrollToTop();
-                }
+        startSearch(0);
+    }
+
+    // Runs the search after delay, when no other search was started in the meantime
+    private void startSearch(int delay) {
+        // MainActivity may still refresh this fragment after it was destroyed
+        if (mSearchExecutor.isShutdown()) return;
+        int generation = ++mGeneration;
+        if (mCancellationSignal != null) mCancellationSignal.cancel();
+        CancellationSignal signal = new CancellationSignal();
+        mCancellationSignal = signal;
+        mHandler.removeCallbacks(mPendingSearch);
+        mPendingSearch = null;
+        Runnable search = () -> {
+            if (signal.isCanceled()) return;
+            Log.d(TAG, "start search " + Pref.getInput());
+            Cursor cursor = null;
+            try {
+                cursor = DB.search(signal);
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "search canceled");
             }
-        }.execute();
+            Cursor result = cursor;
+            mHandler.post(() -> onSearchFinished(generation, result));
+        };
+        if (delay == 0) {
+            mSearchExecutor.execute(search);
+            return;
+        }
+        mPendingSearch = () -> {
+            if (!mSearchExecutor.isShutdown()) mSearchExecutor.execute(search);
+        };
+        mHandler.postDelayed(mPendingSearch, delay);
+    }
+
+    private void onSearchFinished(int generation, Cursor cursor) {
+        if (generation != mGeneration || fragmentResult == null) {
+            if (cursor != null) cursor.close();
+            return;
+        }
+        mCancellationSignal = null;
+        Log.d(TAG, "search finished");
+        fragmentResult.setData(cursor);
+        fragmentResult.scrollToTop();
+    }
+
+    @Override
+    public void onDestroy() {
+        mGeneration++;
+        if (mCancellationSignal != null) mCancellationSignal.cancel();
+        mHandler.removeCallbacks(mPendingSearch);
+        mSearchExecutor.shutdown();
+        super.onDestroy();
     }
 
     private void refreshSearchLang() {
@@ -452,7 +502,10 @@ public class DictFragment extends Fragment implements RefreshableFragment {
         setFullscreen(full);
     }
     
+    // Spinner callbacks often fire back to back, so only the last one within SEARCH_DELAY searches
     private void search() {
-        if (initialized) searchView.setQuery(searchView.getQuery(), true);
+        if (!initialized) return;
+        searchView.setQuery(searchView.getQuery(), false);
+        startSearch(SEARCH_DELAY);
     }
 }
@@ -6,12 +6,20 @@ import static com.osfans.mcpdict.DB.COL_HZ;
 import static com.osfans.mcpdict.DB.COL_KX;
 import static com.osfans.mcpdict.DB.COL_SW;
 
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.text.TextUtils;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
 
 import androidx.core.text.HtmlCompat;
 
 import com.osfans.mcpdict.Orth.*;
 
+import java.util.ArrayDeque;
+
 public abstract class DisplayHelper {
     protected static final String NULL_STRING = "-";
     private static final String PAGE_FORMAT = "(\\d+)\\.(\\d+)";
@@ -32,29 +40,52 @@ public abstract class DisplayHelper {
     public String mLang;
 
     public static CharSequence getRichText(String richTextString) {
-        String s = richTextString
-                .replace("\n", "<br/>")
-                .replaceAll("\\*\\*(.+?)\\*\\*", "<b>$1</b>")
-                .replaceAll("`(.+?)`", "<span style='color: #808080;'>$1</span>");
-        int i = Pref.getDisplayFormat();
-        if (i == 1) {
-            s = s.replace("{", "<small><small>").replace("}", "</small></small>");
-        } else if (i == 2) {
-            s = s.replace("{", "<div class=desc>").replace("}", "</div>");
-        }
-        return s;
+        return Markup.parse(richTextString).toHtml(Pref.getDisplayFormat());
     }
 
+    // Two spaces stand for one, single spaces are dropped and full-width spaces become plain ones
     public static String formatJS(String s) {
-        return s.replace("  ", "　").replace(" ", "").replace("　", " ");
+        StringBuilder sb = new StringBuilder(s.length());
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == ' ') {
+                if (i + 1 < n && s.charAt(i + 1) == ' ') {
+                    sb.append(' ');
+                    i++;
+                }
+            } else sb.append(c == '　' ? ' ' : c);
+        }
+        return sb.toString();
     }
 
+    // Without the marks |, *, [, ] and the {notes} that end on the same line
     public static String getRawText(String s) {
         if (TextUtils.isEmpty(s)) return "";
-        return s.replaceAll("[|*\\[\\]]", "").replaceAll("\\{.*?\\}", "");
+        StringBuilder sb = new StringBuilder(s.length());
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '|', '*', '[', ']' -> {}
+                case '{' -> {
+                    int q = i + 1;
+                    while (q < n && s.charAt(q) != '}' && s.charAt(q) != '\n') q++;
+                    if (q < n && s.charAt(q) == '}') i = q;
+                    else sb.append(c);
+                }
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
     }
 
     public static CharSequence formatUnknownIPA(String lang, String string) {
+        return formatIPA(lang, getUnknownReadings(string));
+    }
+
+    // The lines of an unknown character's readings that contain what was searched for
+    public static String getUnknownReadings(String string) {
         StringBuilder sb = new StringBuilder();
         String s = string.replace("}\t", "}\n");
         String input = Pref.getInput();
@@ -71,7 +102,7 @@ public abstract class DisplayHelper {
                 }
             }
         }
-        return formatIPA(lang, sb.toString());
+        return sb.toString();
     }
 
     public static CharSequence formatPopUp(String hz, int i, String s) {
@@ -86,26 +117,129 @@ public abstract class DisplayHelper {
         return HtmlCompat.fromHtml(text, HtmlCompat.FROM_HTML_MODE_COMPACT);
     }
 
+    private static DisplayHelper getDisplayHelper(String lang) {
+        return switch (lang) {
+            case DB.HK -> Cantonese.displayHelper;
+            case DB.KOR -> Korean.displayHelper;
+            case DB.VI -> Vietnamese.displayHelper;
+            case DB.BA -> BA_DISPLAY_HELPER;
+
+            case DB.SG -> SG_DISPLAY_HELPER;
+            case DB.GY -> MiddleChinese.displayHelper;
+            case DB.ZT -> Zhongtang.displayHelper;
+            case DB.ZYYY -> ZhongyuanYinyun.displayHelper;
+            case DB.DGY -> Dungan.displayHelper;
+            case DB.CMN -> Mandarin.displayHelper;
+            case DB.TW -> Minnan.displayHelper;
+            case DB.JA_GO, DB.JA_KAN, DB.JA_OTHER -> Japanese.displayHelper;
+            default -> Tones.displayHelper;
+        };
+    }
+
+    // The readings of these are shown without the rich markup
+    private static boolean isPlain(String lang) {
+        return switch (lang) {
+            case DB.HK, DB.KOR, DB.VI, DB.BA -> true;
+            default -> false;
+        };
+    }
+
     public static CharSequence formatIPA(String lang, String string) {
-        CharSequence cs;
         if (TextUtils.isEmpty(string)) return "";
-        cs = switch (lang) {
-            case DB.HK -> Cantonese.displayHelper.display(string, lang);
-            case DB.KOR -> Korean.displayHelper.display(string, lang);
-            case DB.VI -> Vietnamese.displayHelper.display(string, lang);
-            case DB.BA -> BA_DISPLAY_HELPER.display(string, lang);
-
-            case DB.SG -> SG_DISPLAY_HELPER.displayRich(string, lang);
-            case DB.GY -> MiddleChinese.displayHelper.displayRich(string, lang);
-            case DB.ZT -> Zhongtang.displayHelper.displayRich(string, lang);
-            case DB.ZYYY -> ZhongyuanYinyun.displayHelper.displayRich(string, lang);
-            case DB.DGY -> Dungan.displayHelper.displayRich(string, lang);
-            case DB.CMN -> Mandarin.displayHelper.displayRich(string, lang);
-            case DB.TW -> Minnan.displayHelper.displayRich(string, lang);
-            case DB.JA_GO, DB.JA_KAN, DB.JA_OTHER -> Japanese.displayHelper.displayRich(string, lang);
-            default -> Tones.displayHelper.displayRich(string, lang);
-        };
-        return cs;
+        DisplayHelper helper = getDisplayHelper(lang);
+        return isPlain(lang) ? helper.display(string, lang) : helper.displayRich(string, lang);
+    }
+
+    // Appends to sb what HtmlCompat.fromHtml makes of formatIPA, building the spans directly.
+    // Readings with HTML of their own besides <i> still go through fromHtml.
+    public static void appendIPA(SpannableStringBuilder sb, String lang, String string) {
+        if (TextUtils.isEmpty(string)) return;
+        String s = getDisplayHelper(lang).display(string, lang);
+        Markup markup = isPlain(lang) ? null : Markup.parse(s);
+        if (!isSpanSafe(s)) {
+            String html = markup == null ? s : markup.toHtml(Pref.getDisplayFormat());
+            sb.append(HtmlCompat.fromHtml(html, HtmlCompat.FROM_HTML_MODE_COMPACT));
+            return;
+        }
+        SpanWriter writer = new SpanWriter(sb);
+        if (markup == null) {
+            writer.text(s, 0, s.length());
+            return;
+        }
+        boolean small = Pref.getDisplayFormat() != 0;
+        for (int i = 0; i < markup.size(); i++) {
+            switch (markup.getType(i)) {
+                case Markup.TEXT -> writer.text(s, markup.getStart(i), markup.getEnd(i));
+                case Markup.BREAK -> sb.append('\n');
+                case Markup.BOLD -> writer.bold.push(sb.length());
+                case Markup.BOLD_END -> writer.end(writer.bold, new StyleSpan(Typeface.BOLD));
+                case Markup.DIM -> writer.dim.push(sb.length());
+                case Markup.DIM_END -> writer.end(writer.dim, new ForegroundColorSpan(0xFF808080));
+                case Markup.NOTE -> {
+                    if (small) writer.note.push(sb.length());
+                    else writer.text("{", 0, 1);
+                }
+                // <small><small>
+                case Markup.NOTE_END -> {
+                    if (small) writer.end(writer.note, new RelativeSizeSpan(0.8f), new RelativeSizeSpan(0.8f));
+                    else writer.text("}", 0, 1);
+                }
+            }
+        }
+    }
+
+    public static CharSequence formatIPASpans(String lang, String string) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        appendIPA(sb, lang, string);
+        return sb;
+    }
+
+    // No entities and no tags other than <i> and </i>
+    private static boolean isSpanSafe(String s) {
+        for (int i = s.indexOf('<'); i >= 0; i = s.indexOf('<', i + 1)) {
+            if (!s.startsWith("<i>", i) && !s.startsWith("</i>", i)) return false;
+        }
+        return s.indexOf('&') < 0;
+    }
+
+    // Spans of one reading appended to a builder, with the marks still open, innermost first
+    private static class SpanWriter {
+        final SpannableStringBuilder sb;
+        final int start;
+        final ArrayDeque<Integer> bold = new ArrayDeque<>(), dim = new ArrayDeque<>(), note = new ArrayDeque<>(), italic = new ArrayDeque<>();
+
+        SpanWriter(SpannableStringBuilder sb) {
+            this.sb = sb;
+            start = sb.length();
+        }
+
+        // An end without an open mark is dropped, and so is a span over nothing, as by fromHtml
+        void end(ArrayDeque<Integer> open, Object... spans) {
+            Integer from = open.poll();
+            if (from == null || from >= sb.length()) return;
+            for (Object span : spans) {
+                sb.setSpan(span, from, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+
+        // Text with its <i> tags, and spaces and line breaks collapsed like fromHtml does
+        void text(String s, int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (c == '<') {
+                    if (s.startsWith("<i>", i)) {
+                        italic.push(sb.length());
+                        i += 2;
+                    } else {
+                        end(italic, new StyleSpan(Typeface.ITALIC));
+                        i += 3;
+                    }
+                } else if (c == ' ' || c == '\n') {
+                    char pred = sb.length() == start ? '\n' : sb.charAt(sb.length() - 1);
+                    if (pred != ' ' && pred != '\n') sb.append(' ');
+                } else sb.append(c);
+            }
+        }
     }
 
     public boolean isIPA(char c) {
@@ -146,12 +280,32 @@ public abstract class DisplayHelper {
             if (isLang) js = formatJS(js);
             sb.append(js);
         }
-        // Add spaces as hints for line wrapping
-        s = sb.toString().replace("\t", " ").replace(",", " ").replace("  ", " ")
-                .replace("(", " (")
-                .replace("]", "] ")
-                .trim();
-        return s;
+        return addSpaces(sb);
+    }
+
+    // Add spaces as hints for line wrapping: tabs and commas become spaces, two spaces become one,
+    // and there is a space before ( and after ]
+    private static String addSpaces(CharSequence s) {
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        int n = s.length(), spaces = 0;
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? s.charAt(i) : 0;
+            if (c == '\t' || c == ',') c = ' ';
+            if (c == ' ') {
+                spaces++;
+                continue;
+            }
+            for (int k = (spaces + 1) / 2; k > 0; k--) sb.append(' ');
+            spaces = 0;
+            if (i == n) break;
+            if (c == '(') sb.append(' ');
+            sb.append(c);
+            if (c == ']') sb.append(' ');
+        }
+        int start = 0, end = sb.length();
+        while (start < end && sb.charAt(start) <= ' ') start++;
+        while (end > start && sb.charAt(end - 1) <= ' ') end--;
+        return sb.substring(start, end);
     }
 
     public String display(String s, String lang) {
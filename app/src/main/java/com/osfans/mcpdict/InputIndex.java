@@ -0,0 +1,176 @@
+package com.osfans.mcpdict;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// All codes of one input scheme (倉頡, 五筆, 山人碼) sorted in memory, so that an input suggestion is
+// a binary search for the range of codes starting with the typed prefix instead of an FTS query.
+// Each code is kept as a position in the cell it comes from.
+public class InputIndex {
+    private static final Map<String, InputIndex> indexes = new ConcurrentHashMap<>();
+
+    private final String mLang;
+    private final int[] mRowids, mMasks;
+    private final String[] mHzs, mCells;
+    private final int[] mEntryRow, mEntryStart, mEntryEnd;
+
+    private InputIndex(String lang, int[] rowids, String[] hzs, String[] cells, int[] masks) {
+        mLang = lang;
+        mRowids = rowids;
+        mHzs = hzs;
+        mCells = cells;
+        mMasks = masks;
+        List<int[]> entries = new ArrayList<>();
+        for (int row = 0; row < cells.length; row++) {
+            String cell = cells[row];
+            int n = cell.length(), p = 0;
+            while (p < n) {
+                char c = cell.charAt(p);
+                if (c == '{') {
+                    int q = cell.indexOf('}', p);
+                    p = q < 0 ? n : q + 1;
+                } else if (isTokenChar(c)) {
+                    int q = p;
+                    while (q < n && isTokenChar(cell.charAt(q))) q++;
+                    entries.add(new int[]{row, p, q});
+                    p = q;
+                } else p++;
+            }
+        }
+        int[][] sorted = entries.toArray(new int[0][]);
+        Arrays.sort(sorted, (a, b) -> {
+            int c = compare(a[0], a[1], a[2], b[0], b[1], b[2]);
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        mEntryRow = new int[sorted.length];
+        mEntryStart = new int[sorted.length];
+        mEntryEnd = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            mEntryRow[i] = sorted[i][0];
+            mEntryStart[i] = sorted[i][1];
+            mEntryEnd[i] = sorted[i][2];
+        }
+    }
+
+    // Same token characters as the FTS simple tokenizer
+    private static boolean isTokenChar(char c) {
+        return c >= 0x80 || Character.isLetterOrDigit(c);
+    }
+
+    private static char lower(char c) {
+        return c < 0x80 ? Character.toLowerCase(c) : c;
+    }
+
+    private int compare(int rowA, int startA, int endA, int rowB, int startB, int endB) {
+        String a = mCells[rowA], b = mCells[rowB];
+        int la = endA - startA, lb = endB - startB;
+        for (int i = 0; i < Math.min(la, lb); i++) {
+            int c = Character.compare(lower(a.charAt(startA + i)), lower(b.charAt(startB + i)));
+            if (c != 0) return c;
+        }
+        return Integer.compare(la, lb);
+    }
+
+    private int compareEntries(int i, int j) {
+        return compare(mEntryRow[i], mEntryStart[i], mEntryEnd[i], mEntryRow[j], mEntryStart[j], mEntryEnd[j]);
+    }
+
+    // <0, 0 or >0 as the code of entry i sorts before, starts with or sorts after the prefix.
+    // When exact, only the code equal to the prefix gives 0.
+    private int compare(int i, String prefix, boolean exact) {
+        String cell = mCells[mEntryRow[i]];
+        int start = mEntryStart[i], len = mEntryEnd[i] - start;
+        int n = Math.min(len, prefix.length());
+        for (int j = 0; j < n; j++) {
+            int c = Character.compare(lower(cell.charAt(start + j)), prefix.charAt(j));
+            if (c != 0) return c;
+        }
+        if (len < prefix.length()) return -1;
+        return exact && len > prefix.length() ? 1 : 0;
+    }
+
+    private int lowerBound(String prefix, boolean exact, int lo, int hi, boolean after) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(mid, prefix, exact);
+            if (c < 0 || (after && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // [first, last) of the entries matching a keyword, which matches as a prefix when it ends with *
+    public int[] range(String keyword) {
+        boolean exact = !keyword.endsWith("*");
+        StringBuilder sb = new StringBuilder(exact ? keyword : keyword.substring(0, keyword.length() - 1));
+        for (int i = 0; i < sb.length(); i++) {
+            sb.setCharAt(i, lower(sb.charAt(i)));
+        }
+        String prefix = sb.toString();
+        int first = lowerBound(prefix, exact, 0, mEntryRow.length, false);
+        int last = lowerBound(prefix, exact, first, mEntryRow.length, true);
+        return new int[]{first, last};
+    }
+
+    // The first rows by code for the keywords, as the HZ, lang, _id cursor of DB.getInputCursor
+    public Cursor query(List<String> keywords, int mask, int limit) {
+        List<Integer> entries = new ArrayList<>();
+        Set<Integer> rows = new HashSet<>();
+        for (String keyword : keywords) {
+            int[] range = range(keyword);
+            int count = 0;
+            for (int i = range[0]; i < range[1] && count < limit; i++) {
+                int row = mEntryRow[i];
+                if (mask != 0 && (mMasks[row] & mask) == 0) continue;
+                if (!rows.add(row)) continue;
+                entries.add(i);
+                count++;
+            }
+        }
+        if (keywords.size() > 1) entries.sort(this::compareEntries);
+        MatrixCursor cursor = new MatrixCursor(new String[]{DB.HZ, mLang, "_id"});
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            int row = mEntryRow[entries.get(i)];
+            cursor.addRow(new Object[]{mHzs[row], mCells[row], mRowids[row]});
+        }
+        return cursor;
+    }
+
+    // Built on the first suggestion of a scheme. maskTable holds the charset mask of each rowid, or is null.
+    public static InputIndex get(SQLiteDatabase db, String table, String lang, String maskTable) {
+        InputIndex index = indexes.get(lang);
+        if (index != null) return index;
+        synchronized (InputIndex.class) {
+            index = indexes.get(lang);
+            if (index != null) return index;
+            String query = maskTable == null
+                    ? String.format("SELECT rowid, `%s`, `%s`, 0 FROM %s WHERE `%s` IS NOT NULL", DB.HZ, lang, table, lang)
+                    : String.format("SELECT v.rowid, v.`%s`, v.`%s`, c.mask FROM %s AS v LEFT JOIN %s AS c ON c.id = v.rowid WHERE v.`%s` IS NOT NULL",
+                        DB.HZ, lang, table, maskTable, lang);
+            Cursor cursor = db.rawQuery(query, null);
+            int n = cursor.getCount();
+            int[] rowids = new int[n], masks = new int[n];
+            String[] hzs = new String[n], cells = new String[n];
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                int i = cursor.getPosition();
+                rowids[i] = cursor.getInt(0);
+                hzs[i] = cursor.getString(1);
+                cells[i] = cursor.getString(2);
+                masks[i] = cursor.getInt(3);
+            }
+            cursor.close();
+            index = new InputIndex(lang, rowids, hzs, cells, masks);
+            indexes.put(lang, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,232 @@
+package com.osfans.mcpdict;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Color;
+import android.text.TextUtils;
+
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The whole info table, loaded once and kept as immutable records
+public class LanguageRegistry {
+
+    public static class Language {
+        public final int rowid;
+        public final String label, name;
+        private final String[] mValues;
+        private final Map<String, int[]> mColors = new HashMap<>();
+        private final Map<String, String[]> mHexColors = new HashMap<>();
+        private final Map<String, String> mWebFqs = new HashMap<>();
+        private final LanguageRegistry mRegistry;
+        private final GeoPoint mPoint;
+        private final int mSize;
+
+        private Language(LanguageRegistry registry, int rowid, String[] values) {
+            mRegistry = registry;
+            mValues = values;
+            this.rowid = rowid;
+            label = get(DB.LABEL);
+            name = get(DB.LANGUAGE);
+            for (int i = 0; i < registry.mFields.length; i++) {
+                String field = registry.mFields[i];
+                String value = values[i];
+                if (TextUtils.isEmpty(value)) continue;
+                if (field.endsWith(DB._COLOR)) {
+                    int[] colors = parseColors(value);
+                    if (colors == null) continue;
+                    mColors.put(field, colors);
+                    mHexColors.put(field, new String[]{toHex(colors[0]), toHex(colors[1])});
+                } else if (field.endsWith(DB._FQ)) {
+                    mWebFqs.put(field, parseWebFq(value));
+                }
+            }
+            GeoPoint point = null;
+            try {
+                point = DB.parseLocation(get("經緯度"));
+            } catch (NumberFormatException ignored) {
+            }
+            mPoint = point;
+            mSize = parseInt(get("地圖級別"));
+        }
+
+        String[] getValues() {
+            return mValues;
+        }
+
+        public String get(String field) {
+            Integer i = mRegistry.mFieldIndex.get(field);
+            if (i == null) return "";
+            String s = mValues[i];
+            return s == null ? "" : s;
+        }
+
+        public int[] getColors(String field) {
+            return mColors.get(field);
+        }
+
+        public String[] getHexColors(String field) {
+            return mHexColors.get(field);
+        }
+
+        public String getWebFq(String field) {
+            String s = mWebFqs.get(field);
+            return s == null ? "" : s;
+        }
+
+        public GeoPoint getPoint() {
+            return mPoint;
+        }
+
+        public int getSize() {
+            return mSize;
+        }
+
+        public String getDictName() {
+            return get("網站");
+        }
+
+        public String getDictLink() {
+            return get("網址");
+        }
+
+        private static int[] parseColors(String s) {
+            try {
+                if (!s.contains(",")) {
+                    int c = Color.parseColor(s);
+                    return new int[]{c, c};
+                }
+                String[] cs = s.split(",");
+                return new int[]{Color.parseColor(cs[0]), Color.parseColor(cs[1])};
+            } catch (Exception ignored) {
+            }
+            return null;
+        }
+
+        private static String toHex(int color) {
+            return String.format("#%06X", color & 0xFFFFFF);
+        }
+
+        private static String parseWebFq(String s) {
+            if (s.contains(",")) {
+                s = s.replace(",", " ,");
+                String[] fs = s.split(",");
+                if (fs.length < 2 || TextUtils.isEmpty(fs[1].trim())) return fs[0].trim();
+                return fs[1].trim();
+            }
+            return s;
+        }
+
+        private static int parseInt(String s) {
+            if (TextUtils.isEmpty(s)) return 0;
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException ignored) {
+            }
+            return 0;
+        }
+    }
+
+    private final String[] mFields;
+    private final Map<String, Integer> mFieldIndex = new HashMap<>();
+    private final List<Language> mLanguages = new ArrayList<>();
+    private final Map<String, Language> mByLabel = new HashMap<>();
+    private final Map<String, Language> mByName = new HashMap<>();
+    // Lookups that are not exact names, resolved once by FTS like before
+    private final Map<String, Integer> mResolved = new ConcurrentHashMap<>();
+
+    private LanguageRegistry(String[] fields) {
+        mFields = fields;
+        for (int i = 0; i < fields.length; i++) {
+            mFieldIndex.put(fields[i], i);
+        }
+    }
+
+    public static LanguageRegistry load(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery(String.format("SELECT rowid, * FROM %s ORDER BY rowid", table), null);
+        String[] names = cursor.getColumnNames();
+        String[] fields = new String[names.length - 1];
+        System.arraycopy(names, 1, fields, 0, fields.length);
+        LanguageRegistry registry = new LanguageRegistry(fields);
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            String[] values = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = cursor.getString(i + 1);
+            }
+            registry.add(new Language(registry, cursor.getInt(0), values));
+        }
+        cursor.close();
+        return registry;
+    }
+
+    // Rebuilds the registry from rows kept in a Snapshot
+    public static LanguageRegistry of(String[] fields, int[] rowids, String[][] values) {
+        LanguageRegistry registry = new LanguageRegistry(fields);
+        for (int i = 0; i < rowids.length; i++) {
+            registry.add(new Language(registry, rowids[i], values[i]));
+        }
+        return registry;
+    }
+
+    private void add(Language language) {
+        mLanguages.add(language);
+        if (!TextUtils.isEmpty(language.label)) mByLabel.putIfAbsent(language.label, language);
+        if (!TextUtils.isEmpty(language.name)) mByName.putIfAbsent(language.name, language);
+    }
+
+    public String[] getFields() {
+        return mFields;
+    }
+
+    public List<Language> getLanguages() {
+        return Collections.unmodifiableList(mLanguages);
+    }
+
+    public Language getByLabel(String label) {
+        return label == null ? null : mByLabel.get(label);
+    }
+
+    public Language getByName(String name) {
+        return name == null ? null : mByName.get(name);
+    }
+
+    public Language getByRowid(int rowid) {
+        int i = rowid - 1;
+        if (i >= 0 && i < mLanguages.size() && mLanguages.get(i).rowid == rowid) return mLanguages.get(i);
+        for (Language language : mLanguages) {
+            if (language.rowid == rowid) return language;
+        }
+        return null;
+    }
+
+    // Same rules as a "selection MATCH lang" query: the exact row wins, otherwise the first match
+    public Language find(SQLiteDatabase db, String table, String selection, String lang) {
+        if (TextUtils.isEmpty(lang)) return null;
+        Language language = selection.contentEquals(DB.LABEL) ? getByLabel(lang) : selection.contentEquals(DB.LANGUAGE) ? getByName(lang) : null;
+        if (language != null || db == null) return language;
+        String key = selection + ":" + lang;
+        Integer rowid = mResolved.get(key);
+        if (rowid == null) {
+            rowid = 0;
+            Cursor cursor = db.rawQuery(String.format("SELECT rowid, \"%s\" FROM %s WHERE \"%s\" MATCH ?", selection, table, selection),
+                    new String[]{String.format("\"%s\"", lang)});
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                if (rowid == 0) rowid = cursor.getInt(0);
+                String l = cursor.getString(1);
+                if (!TextUtils.isEmpty(l) && l.contentEquals(lang)) {
+                    rowid = cursor.getInt(0);
+                    break;
+                }
+            }
+            cursor.close();
+            mResolved.put(key, rowid);
+        }
+        return getByRowid(rowid);
+    }
+}
@@ -1,5 +1,7 @@
 package com.osfans.mcpdict;
 
+import android.content.ClipData;
+import android.content.ClipboardManager;
 import android.content.Intent;
 import android.os.AsyncTask;
 import android.os.Bundle;
@@ -39,6 +41,12 @@ public class MainActivity extends AppCompatActivity {
             Utils.info(this, "");
             return true;
         }
+        if (id == R.id.menu_item_annotate) {
+            ClipboardManager clipboard = (ClipboardManager) getSystemService(CLIPBOARD_SERVICE);
+            ClipData clip = clipboard.getPrimaryClip();
+            if (clip != null && clip.getItemCount() > 0) Utils.annotate(this, clip.getItemAt(0).coerceToText(this));
+            return true;
+        }
         if (id == R.id.menu_item_help) {
             Utils.help(this);
             return true;
@@ -78,6 +86,23 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.main_activity);
         mPager = findViewById(R.id.pager);
         initAdapter();
+        // Queued after the initialization above, AsyncTasks run one at a time
+        if (savedInstanceState == null) annotate(getIntent());
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        annotate(intent);
+    }
+
+    // Text shared to the app or selected in another app is annotated
+    private void annotate(Intent intent) {
+        if (intent == null) return;
+        CharSequence text = null;
+        if (Intent.ACTION_SEND.equals(intent.getAction())) text = intent.getCharSequenceExtra(Intent.EXTRA_TEXT);
+        else if (Intent.ACTION_PROCESS_TEXT.equals(intent.getAction())) text = intent.getCharSequenceExtra(Intent.EXTRA_PROCESS_TEXT);
+        Utils.annotate(this, text);
     }
 
     private void initAdapter() {
@@ -0,0 +1,116 @@
+package com.osfans.mcpdict;
+
+// A displayed reading read in one pass into a flat list of tokens:
+// **bold**, `dim`, {notes} and line breaks, with the text between them as ranges of the reading.
+public class Markup {
+    public static final int TEXT = 0;
+    public static final int BREAK = 1;
+    public static final int BOLD = 2;
+    public static final int BOLD_END = 3;
+    public static final int DIM = 4;
+    public static final int DIM_END = 5;
+    public static final int NOTE = 6;
+    public static final int NOTE_END = 7;
+
+    private final String mText;
+    // Type, start and end of each token
+    private int[] mTokens = new int[48];
+    private int mCount;
+
+    private Markup(String text) {
+        mText = text;
+    }
+
+    public static Markup parse(String s) {
+        Markup markup = new Markup(s);
+        markup.scan(0, s.length());
+        return markup;
+    }
+
+    private void add(int type, int start, int end) {
+        if (type == TEXT && start == end) return;
+        if (mCount * 3 == mTokens.length) {
+            int[] tokens = new int[mTokens.length * 2];
+            System.arraycopy(mTokens, 0, tokens, 0, mTokens.length);
+            mTokens = tokens;
+        }
+        mTokens[mCount * 3] = type;
+        mTokens[mCount * 3 + 1] = start;
+        mTokens[mCount * 3 + 2] = end;
+        mCount++;
+    }
+
+    // End of the pair closing the one at start, or -1. The pair encloses at least one character.
+    private int findClose(String mark, int start, int end) {
+        int i = mText.indexOf(mark, start + mark.length() + 1);
+        return i < 0 || i + mark.length() > end ? -1 : i;
+    }
+
+    private void scan(int start, int end) {
+        int text = start, i = start;
+        while (i < end) {
+            char c = mText.charAt(i);
+            int close;
+            if (c == '*' && i + 1 < end && mText.charAt(i + 1) == '*' && (close = findClose("**", i, end)) >= 0) {
+                add(TEXT, text, i);
+                add(BOLD, i, i + 2);
+                scan(i + 2, close);
+                add(BOLD_END, close, close + 2);
+                i = close + 2;
+            } else if (c == '`' && (close = findClose("`", i, end)) >= 0) {
+                add(TEXT, text, i);
+                add(DIM, i, i + 1);
+                scan(i + 1, close);
+                add(DIM_END, close, close + 1);
+                i = close + 1;
+            } else if (c == '\n' || c == '{' || c == '}') {
+                add(TEXT, text, i);
+                add(c == '\n' ? BREAK : c == '{' ? NOTE : NOTE_END, i, i + 1);
+                i++;
+            } else {
+                i++;
+                continue;
+            }
+            text = i;
+        }
+        add(TEXT, text, end);
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public int getType(int i) {
+        return mTokens[i * 3];
+    }
+
+    public int getStart(int i) {
+        return mTokens[i * 3 + 1];
+    }
+
+    public int getEnd(int i) {
+        return mTokens[i * 3 + 2];
+    }
+
+    public String getText() {
+        return mText;
+    }
+
+    // Notes are small in the table format and blocks of their own in the web format
+    public String toHtml(int format) {
+        StringBuilder sb = new StringBuilder(mText.length() + mCount * 8);
+        for (int i = 0; i < mCount; i++) {
+            switch (getType(i)) {
+                case TEXT -> sb.append(mText, getStart(i), getEnd(i));
+                case BREAK -> sb.append("<br/>");
+                case BOLD -> sb.append("<b>");
+                case BOLD_END -> sb.append("</b>");
+                case DIM -> sb.append("<span style='color: #808080;'>");
+                case DIM_END -> sb.append("</span>");
+                case NOTE -> sb.append(format == 1 ? "<small><small>" : format == 2 ? "<div class=desc>" : "{");
+                case NOTE_END -> sb.append(format == 1 ? "</small></small>" : format == 2 ? "</div>" : "}");
+            }
+        }
+        return sb.toString();
+    }
+}
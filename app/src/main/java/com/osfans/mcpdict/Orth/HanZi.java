@@ -72,12 +72,12 @@ public class HanZi {
 
     public static boolean isBH(String s) {
         if (TextUtils.isEmpty(s)) return false;
-        return s.matches("[1-9][0-9]?");
+        return s.matches("[1-9][0-9]?([-~][1-9][0-9]?)?");
     }
 
     public static boolean isBS(String s) {
         if (TextUtils.isEmpty(s)) return false;
-        return isHz(s.codePointAt(0)) && s.substring(1).matches("-?[0-9]{1,2}");
+        return isHz(s.codePointAt(0)) && s.substring(s.offsetByCodePoints(0, 1)).matches("-?[0-9]{1,2}([-~]-?[0-9]{1,2})?");
     }
 
     public static boolean isPY(String s) {
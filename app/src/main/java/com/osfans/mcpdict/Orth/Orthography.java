@@ -5,12 +5,8 @@ import static com.osfans.mcpdict.Orth.HanZi.cp2str;
 import android.content.res.Resources;
 import android.text.TextUtils;
 
-import com.osfans.mcpdict.DB;
 import com.osfans.mcpdict.R;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,106 +34,27 @@ public class Orthography {
 
     public static void setToneStyle(int style) {
         mToneStyle = style;
+        ToneTable.setStyles(mToneStyle, mToneValueStyle);
     }
 
     public static void setToneValueStyle(int style) {
         mToneValueStyle = style;
-    }
-
-    private static String getJSONString(JSONArray styles, int index) {
-        try {
-            return styles.getString(index);
-        } catch (Exception e) {
-            return "";
-        }
+        ToneTable.setStyles(mToneStyle, mToneValueStyle);
     }
 
     public static String formatRoman(String s) {
         return String.format("<i>%s</i>", s);
     }
 
-    private static final String[] toneBars = {"ˀ˩˨˧˦˥ˀ", "ˀ꜖꜕꜔꜓꜒ˀ", "ˀ꜌꜋꜊꜉꜈ˀ", "ˀ꜑꜐꜏꜎꜍ˀ", "⁰¹²³⁴⁵⁶"};
-    private static String formatToneBar(String s, int index) {
-        if (TextUtils.isEmpty(s)) return "";
-        if (s.contains("/")) {
-            String[] ss = s.split("/");
-            String[] nss = new String[ss.length];
-            for (int i = 0; i < ss.length; i++) {
-                nss[i] = formatToneBar(ss[i], index);
-            }
-            return String.join("/", nss);
-        }
-        if (mToneValueStyle == 0 && s.length() == 2 && s.charAt(0) == s.charAt(1)) s = s.substring(1);
-        for (int i = 0; i <= 6; i++)
-            s = s.replace((char)('0' + i), toneBars[index].charAt(i));
-        return s;
-    }
-
     public static String formatTone(String base, String tone, String lang) {
         if (TextUtils.isEmpty(tone) || tone.contentEquals("_")) return base;
-        JSONArray styles = null;
-        try {
-            JSONObject jsonObject = DB.getToneName(lang);
-            styles = jsonObject.getJSONArray(tone);
-        } catch (Exception ignored) {
-        }
-        if (styles == null || styles.length() != 5) {
+        ToneTable table = ToneTable.get(lang);
+        int i = table == null ? -1 : table.indexOf(tone);
+        if (i < 0) {
             if (tone.contentEquals("0")) return base;
             return base + tone;
         }
-        String tv = getJSONString(styles, 0);
-        String style1 = getJSONString(styles, 1);
-        if (mToneStyle == 5) mToneValueStyle = 1;
-        if (!TextUtils.isEmpty(tv)) {
-            if (mToneValueStyle == 0) { //符號
-                if (tv.length() == 2 && tv.charAt(0) == tv.charAt(1)) tv = tv.substring(0, 1);
-                if (tv.contains("-")) {
-                    String [] tvs = tv.split("-");
-                    tvs[0] = formatToneBar(tvs[0], 0);
-                    tvs[1] = formatToneBar(tvs[1], style1.startsWith("0") ? 3 : 1);
-                    tv = tvs[0] + tvs[1];
-                } else if (style1.startsWith("0") && tv.length() == 1) {
-                    tv = formatToneBar(tv, 2);
-                } else {
-                    tv = formatToneBar(tv, 0);
-                }
-            } else if (mToneValueStyle == 1) { //數字
-                tv = formatToneBar(tv, 4).replace('-', '⁻');
-            } else tv = "";
-        }
-        switch (mToneStyle) {
-            case 6:
-                return base + tv;
-            case 0:
-                return base + tv + tone;
-            default:
-                String sTone = getJSONString(styles, mToneStyle == 5 ? 1 : mToneStyle);
-                if (TextUtils.isEmpty(sTone)) return base + tv;
-                if (mToneStyle == 4 && !TextUtils.isEmpty(style1)) {
-                    char a = style1.charAt(0);
-                    if (a >= '1' && a <= '4') return sTone + base + tv;
-                    else return base + tv + sTone;
-                }
-                if (mToneStyle <= 2) {
-                    char a = sTone.charAt(0);
-                    sTone = sTone.replace('0', '⓪').replace(a, (char)(a - '1' + '①'));
-                    if (sTone.length() == 2) {
-                        char b = sTone.charAt(1);
-                        sTone = sTone.replace(b, (char)(b - 'a' + 'ⓐ'));
-                    }
-                    return base + tv + sTone;
-                }
-                if (mToneStyle == 5) {
-                    char a = sTone.charAt(0);
-                    sTone = sTone.replace(a, (char)(a - '0' + '₀'));
-                    if (sTone.length() == 2) {
-                        char b = sTone.charAt(1);
-                        sTone = sTone.replace(b, (char)(b - 'a' + 'ⓐ'));
-                    }
-                    return base + sTone + tv;
-                }
-                return base + tv + sTone;
-        }
+        return table.format(i, base);
     }
 
     private static boolean skip(String line) {
@@ -0,0 +1,187 @@
+package com.osfans.mcpdict.Orth;
+
+import android.text.TextUtils;
+
+import com.osfans.mcpdict.DB;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The 聲調 JSON of one language compiled for the current tone styles:
+// each tone code maps to the text put before and after the syllable
+public class ToneTable {
+    private static final String[] toneBars = {"ˀ˩˨˧˦˥ˀ", "ˀ꜖꜕꜔꜓꜒ˀ", "ˀ꜌꜋꜊꜉꜈ˀ", "ˀ꜑꜐꜏꜎꜍ˀ", "⁰¹²³⁴⁵⁶"};
+    private static final ToneTable NONE = new ToneTable(new String[0], new String[0][], 0, 0);
+    private static volatile Styles current = new Styles(0, 0);
+
+    // The tables compiled for one pair of styles. setStyles replaces it, so a table compiled
+    // for the old styles while the styles change is put into the old map and never seen again.
+    private static class Styles {
+        final int toneStyle, toneValueStyle;
+        final Map<String, ToneTable> tables = new ConcurrentHashMap<>();
+
+        Styles(int toneStyle, int toneValueStyle) {
+            this.toneStyle = toneStyle;
+            this.toneValueStyle = toneValueStyle;
+        }
+    }
+
+    private final String[] mCodes;
+    private final String[] mPrefix, mSuffix;
+
+    private ToneTable(String[] codes, String[][] styles, int toneStyle, int toneValueStyle) {
+        mCodes = codes;
+        mPrefix = new String[codes.length];
+        mSuffix = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            if (styles[i] == null || styles[i].length != 5) continue;
+            compile(i, codes[i], styles[i], toneStyle, toneValueStyle);
+        }
+    }
+
+    public static synchronized void setStyles(int style, int valueStyle) {
+        Styles styles = current;
+        if (style == styles.toneStyle && valueStyle == styles.toneValueStyle) return;
+        current = new Styles(style, valueStyle);
+    }
+
+    public static ToneTable get(String lang) {
+        if (TextUtils.isEmpty(lang)) return null;
+        Styles styles = current;
+        ToneTable table = styles.tables.get(lang);
+        if (table == null) {
+            String s = DB.getFieldByLabel(lang, "聲調");
+            table = parse(s, styles);
+            // Do not remember a miss before the database is loaded
+            if (table != NONE || DB.getLanguage(lang) != null) styles.tables.put(lang, table);
+        }
+        return table == NONE ? null : table;
+    }
+
+    private static ToneTable parse(String s, Styles target) {
+        if (TextUtils.isEmpty(s)) return NONE;
+        try {
+            JSONObject jsonObject = new JSONObject(s);
+            List<String> codes = new ArrayList<>();
+            List<String[]> styles = new ArrayList<>();
+            for (Iterator<String> it = jsonObject.keys(); it.hasNext(); ) {
+                String code = it.next();
+                codes.add(code);
+                JSONArray array = jsonObject.optJSONArray(code);
+                if (array == null) {
+                    styles.add(null);
+                    continue;
+                }
+                String[] a = new String[array.length()];
+                for (int i = 0; i < a.length; i++) {
+                    a[i] = array.optString(i, "");
+                }
+                styles.add(a);
+            }
+            return new ToneTable(codes.toArray(new String[0]), styles.toArray(new String[0][]), target.toneStyle, target.toneValueStyle);
+        } catch (JSONException ignored) {
+        }
+        return NONE;
+    }
+
+    public String[] getCodes() {
+        return mCodes;
+    }
+
+    public int indexOf(String tone) {
+        for (int i = 0; i < mCodes.length; i++) {
+            if (mCodes[i].contentEquals(tone)) return mSuffix[i] == null ? -1 : i;
+        }
+        return -1;
+    }
+
+    public String format(int i, String base) {
+        String prefix = mPrefix[i];
+        return TextUtils.isEmpty(prefix) ? base + mSuffix[i] : prefix + base + mSuffix[i];
+    }
+
+    private static String formatToneBar(String s, int index, int valueStyle) {
+        if (TextUtils.isEmpty(s)) return "";
+        if (s.contains("/")) {
+            String[] ss = s.split("/");
+            String[] nss = new String[ss.length];
+            for (int i = 0; i < ss.length; i++) {
+                nss[i] = formatToneBar(ss[i], index, valueStyle);
+            }
+            return String.join("/", nss);
+        }
+        if (valueStyle == 0 && s.length() == 2 && s.charAt(0) == s.charAt(1)) s = s.substring(1);
+        for (int i = 0; i <= 6; i++)
+            s = s.replace((char)('0' + i), toneBars[index].charAt(i));
+        return s;
+    }
+
+    private void compile(int index, String tone, String[] styles, int style, int toneValueStyle) {
+        int valueStyle = style == 5 ? 1 : toneValueStyle;
+        String tv = styles[0];
+        String style1 = styles[1];
+        if (!TextUtils.isEmpty(tv)) {
+            if (valueStyle == 0) { //符號
+                if (tv.length() == 2 && tv.charAt(0) == tv.charAt(1)) tv = tv.substring(0, 1);
+                if (tv.contains("-")) {
+                    String [] tvs = tv.split("-");
+                    tvs[0] = formatToneBar(tvs[0], 0, valueStyle);
+                    tvs[1] = formatToneBar(tvs[1], style1.startsWith("0") ? 3 : 1, valueStyle);
+                    tv = tvs[0] + tvs[1];
+                } else if (style1.startsWith("0") && tv.length() == 1) {
+                    tv = formatToneBar(tv, 2, valueStyle);
+                } else {
+                    tv = formatToneBar(tv, 0, valueStyle);
+                }
+            } else if (valueStyle == 1) { //數字
+                tv = formatToneBar(tv, 4, valueStyle).replace('-', '⁻');
+            } else tv = "";
+        }
+        String prefix = "", suffix;
+        switch (style) {
+            case 6:
+                suffix = tv;
+                break;
+            case 0:
+                suffix = tv + tone;
+                break;
+            default:
+                String sTone = styles[style == 5 ? 1 : style];
+                if (TextUtils.isEmpty(sTone)) {
+                    suffix = tv;
+                } else if (style == 4 && !TextUtils.isEmpty(style1)) {
+                    char a = style1.charAt(0);
+                    if (a >= '1' && a <= '4') {
+                        prefix = sTone;
+                        suffix = tv;
+                    } else suffix = tv + sTone;
+                } else if (style <= 2) {
+                    char a = sTone.charAt(0);
+                    sTone = sTone.replace('0', '⓪').replace(a, (char)(a - '1' + '①'));
+                    if (sTone.length() == 2) {
+                        char b = sTone.charAt(1);
+                        sTone = sTone.replace(b, (char)(b - 'a' + 'ⓐ'));
+                    }
+                    suffix = tv + sTone;
+                } else if (style == 5) {
+                    char a = sTone.charAt(0);
+                    sTone = sTone.replace(a, (char)(a - '0' + '₀'));
+                    if (sTone.length() == 2) {
+                        char b = sTone.charAt(1);
+                        sTone = sTone.replace(b, (char)(b - 'a' + 'ⓐ'));
+                    }
+                    suffix = sTone + tv;
+                } else suffix = tv + sTone;
+                break;
+        }
+        mPrefix[index] = prefix;
+        mSuffix[index] = suffix;
+    }
+}
@@ -2,13 +2,9 @@ package com.osfans.mcpdict.Orth;
 
 import android.text.TextUtils;
 
-import com.osfans.mcpdict.DB;
 import com.osfans.mcpdict.DisplayHelper;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Matcher;
 
@@ -21,12 +17,11 @@ public class Tones {
 
     public static List<String> getAllTones(String s, String lang) {
         if (TextUtils.isEmpty(s)) return null;     // Fail
-        JSONObject jsonObject = DB.getToneName(lang);
-        if (jsonObject == null) return null;
+        ToneTable table = ToneTable.get(lang);
+        if (table == null) return null;
         List<String> result = new ArrayList<>();
         result.add(s);
-        for (Iterator<String> it = jsonObject.keys(); it.hasNext(); ) {
-            String tone = it.next();
+        for (String tone : table.getCodes()) {
             result.add(s + tone);
         }
         return result;
@@ -0,0 +1,126 @@
+package com.osfans.mcpdict;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// The characters of every reading of every language, from postings.bin written by tools/make.py.
+// The asset is stored uncompressed and mapped as is, so homophones are found without SQLite.
+public class Postings {
+    private static final int MAGIC = 0x4d435048;
+    private static final int VERSION = 1;
+
+    private final ByteBuffer mBuffer;
+    private final int mHzCount, mHzOffsets, mHzText;
+    // lang_id -> position of the language in the language table
+    private final Map<Integer, Integer> mLanguages = new HashMap<>();
+    private final int mLanguageTable;
+
+    private Postings(ByteBuffer buffer) {
+        mBuffer = buffer;
+        mHzCount = buffer.getInt(8);
+        int languageCount = buffer.getInt(12);
+        mHzOffsets = 16;
+        mHzText = mHzOffsets + (mHzCount + 1) * 4;
+        mLanguageTable = mHzText + buffer.getInt(mHzOffsets + mHzCount * 4);
+        for (int i = 0; i < languageCount; i++) {
+            mLanguages.put(buffer.getInt(mLanguageTable + i * 12), i);
+        }
+    }
+
+    // null when the asset is missing or compressed
+    public static Postings open(AssetManager assets, String name) {
+        try (AssetFileDescriptor fd = assets.openFd(name); FileInputStream in = fd.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+            return new Postings(buffer);
+        } catch (IOException | RuntimeException ignored) {
+        }
+        return null;
+    }
+
+    public String getHz(int rowid) {
+        if (rowid <= 0 || rowid >= mHzCount) return "";
+        int start = mBuffer.getInt(mHzOffsets + rowid * 4);
+        int end = mBuffer.getInt(mHzOffsets + rowid * 4 + 4);
+        return getString(mHzText + start, end - start);
+    }
+
+    private String getString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(offset);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Number of readings of a language, 0 when it has none
+    public int getReadingCount(int langId) {
+        Integer i = mLanguages.get(langId);
+        return i == null ? 0 : mBuffer.getInt(mLanguageTable + i * 12 + 4);
+    }
+
+    private int getEntry(int langId, int index) {
+        Integer i = mLanguages.get(langId);
+        if (i == null) return -1;
+        return mBuffer.getInt(mLanguageTable + i * 12 + 8) + index * 16;
+    }
+
+    // The reading at index of a language, in UTF-8 order
+    public String getReading(int langId, int index) {
+        int entry = getEntry(langId, index);
+        return getString(mBuffer.getInt(entry), mBuffer.getInt(entry + 4));
+    }
+
+    // Rowids of the characters read as the reading at index, ascending
+    public int[] getRowids(int langId, int index) {
+        return getInts(getEntry(langId, index), 0);
+    }
+
+    // Position of that reading in the cell of each of those characters
+    public int[] getPositions(int langId, int index) {
+        return getInts(getEntry(langId, index), 1);
+    }
+
+    private int[] getInts(int entry, int part) {
+        int count = mBuffer.getInt(entry + 12);
+        int offset = mBuffer.getInt(entry + 8) + part * count * 4;
+        int[] a = new int[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = mBuffer.getInt(offset + i * 4);
+        }
+        return a;
+    }
+
+    // Index of a reading of a language, or -1. The reading is compared as UTF-8 bytes like the keys are sorted.
+    public int find(int langId, String reading) {
+        byte[] key = reading.getBytes(StandardCharsets.UTF_8);
+        int lo = 0, hi = getReadingCount(langId) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(getEntry(langId, mid), key);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int compare(int entry, byte[] key) {
+        int offset = mBuffer.getInt(entry), length = mBuffer.getInt(entry + 4);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(mBuffer.get(offset + i) & 0xff, key[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return Integer.compare(length, key.length);
+    }
+}
@@ -0,0 +1,89 @@
+package com.osfans.mcpdict;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The columns of mcpdict a result list actually reads, instead of v.* with every language.
+// 漢字 and the dictionaries keep their positions so COL_HZ..COL_LAST_DICT stay valid,
+// the other columns are at the positions indexOf gives, so the renderers do not search them by name.
+public class Projection {
+    private final List<String> mColumns = new ArrayList<>();
+    private final Map<String, Integer> mIndex = new HashMap<>();
+    private final String mLabel;
+
+    private Projection(String label) {
+        mLabel = label;
+    }
+
+    public static Projection plan() {
+        return DB.getVisiblePlan().getProjection(Pref.getLabel());
+    }
+
+    static Projection plan(String[] visibleColumns, String label) {
+        Projection projection = new Projection(label);
+        for (int i = 0; i <= DB.COL_LAST_DICT; i++) {
+            projection.add(DB.getColumn(i));
+        }
+        // Shown in the unicode popup of every character
+        for (int i = DB.COL_FIRST_INFO; i <= DB.COL_LAST_INFO; i++) {
+            projection.add(DB.getColumn(i));
+        }
+        for (String col : visibleColumns) {
+            projection.add(col);
+        }
+        // Read for unknown characters and the reading line even when it is not visible
+        if (!TextUtils.isEmpty(label) && DB.getColumnIndex(label) >= 0) projection.add(label);
+        return projection;
+    }
+
+    private void add(String col) {
+        if (TextUtils.isEmpty(col) || mIndex.containsKey(col)) return;
+        mIndex.put(col, mColumns.size());
+        mColumns.add(col);
+    }
+
+    public int indexOf(String col) {
+        Integer i = mIndex.get(col);
+        return i == null ? -1 : i;
+    }
+
+    public String getLabel() {
+        return mLabel;
+    }
+
+    public String getKey() {
+        return String.join(",", mColumns);
+    }
+
+    // The cell of col in a cursor selected with this projection. A page selected before the preferences
+    // changed may have the columns elsewhere, it is searched by name then.
+    public String getString(Cursor cursor, String col) {
+        return getString(cursor, indexOf(col), col);
+    }
+
+    public static String getString(Cursor cursor, int i, String col) {
+        if (i < 0 || i >= cursor.getColumnCount() || !col.contentEquals(cursor.getColumnName(i))) {
+            i = cursor.getColumnIndex(col);
+            if (i < 0) return null;
+        }
+        return cursor.getString(i);
+    }
+
+    // Column list for the outer SELECT, followed by the given extra expressions
+    public String[] toSelect(String alias, String... extras) {
+        String[] select = new String[mColumns.size() + extras.length];
+        int i = 0;
+        for (String col : mColumns) {
+            select[i++] = String.format("%s.`%s` AS `%s`", alias, col, col);
+        }
+        for (String extra : extras) {
+            select[i++] = extra;
+        }
+        return select;
+    }
+}
@@ -0,0 +1,77 @@
+package com.osfans.mcpdict;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.util.LruCache;
+
+// Search results copied out of SQLite, so that repeating a search does not query again
+public class ResultCache {
+    private static final int MAX_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8 << 20);
+
+    private static class Result {
+        final String[] columns;
+        final Object[][] rows;
+        final int size;
+
+        Result(String[] columns, Object[][] rows, int size) {
+            this.columns = columns;
+            this.rows = rows;
+            this.size = size;
+        }
+
+        Cursor newCursor() {
+            MatrixCursor cursor = new MatrixCursor(columns, rows.length);
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+    }
+
+    private static final LruCache<String, Result> cache = new LruCache<>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, Result value) {
+            return value.size + key.length() * 2;
+        }
+    };
+
+    public static String getKey(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (Object part : parts) {
+            sb.append(part).append('\u0001');
+        }
+        return sb.toString();
+    }
+
+    public static Cursor get(String key) {
+        Result result = cache.get(key);
+        if (result == null) return null;
+        return result.newCursor();
+    }
+
+    // Copies and closes the SQLite cursor, and returns a cursor over the copy
+    public static Cursor put(String key, Cursor cursor) {
+        String[] columns = cursor.getColumnNames();
+        Object[][] rows = new Object[cursor.getCount()][];
+        int size = 0;
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                if (cursor.getType(i) == Cursor.FIELD_TYPE_INTEGER) {
+                    row[i] = cursor.getLong(i);
+                    size += 16;
+                } else {
+                    String s = cursor.getString(i);
+                    row[i] = s;
+                    if (s != null) size += 40 + s.length() * 2;
+                }
+            }
+            rows[cursor.getPosition()] = row;
+            size += 16 + columns.length * 4;
+        }
+        cursor.close();
+        Result result = new Result(columns, rows, size);
+        cache.put(key, result);
+        return result.newCursor();
+    }
+}
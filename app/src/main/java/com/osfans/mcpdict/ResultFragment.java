@@ -5,7 +5,6 @@ import static com.osfans.mcpdict.DB.COL_ALL_LANGUAGES;
 import static com.osfans.mcpdict.DB.COL_LAST_DICT;
 import static com.osfans.mcpdict.DB.COL_HZ;
 import static com.osfans.mcpdict.DB.COL_FIRST_DICT;
-import static com.osfans.mcpdict.DB.COMMENT;
 import static com.osfans.mcpdict.DB.HZ;
 import static com.osfans.mcpdict.DB.SW;
 import static com.osfans.mcpdict.DB.VARIANTS;
@@ -16,6 +15,7 @@ import static com.osfans.mcpdict.DB.getLabel;
 import static com.osfans.mcpdict.DB.getSubColor;
 import static com.osfans.mcpdict.DB.getUnicode;
 
+import android.content.ActivityNotFoundException;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
@@ -45,7 +45,8 @@ import android.view.MotionEvent;
 import android.view.SubMenu;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.LinearLayout;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebViewClient;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -53,38 +54,62 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.text.HtmlCompat;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.osfans.mcpdict.Adapter.ResultAdapter;
 
 import com.osfans.mcpdict.Favorite.FavoriteDialogs;
 import com.osfans.mcpdict.Orth.HanZi;
 import com.osfans.mcpdict.Orth.Orthography;
+import com.osfans.mcpdict.UI.BadgeCache;
 import com.osfans.mcpdict.UI.MenuSpan;
 import com.osfans.mcpdict.UI.MapView;
 import com.osfans.mcpdict.UI.WebView;
 import com.osfans.mcpdict.UI.PopupSpan;
-import com.osfans.mcpdict.UI.TextDrawable;
 import com.osfans.mcpdict.Util.FontUtil;
+import com.osfans.mcpdict.Util.UserDB;
+
+import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.ref.WeakReference;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 public class ResultFragment extends Fragment {
 
     private static final String TAG = "ResultFragment";
     private View selfView;
     private View mScroll;
-    private TextView mTextView;
+    private RecyclerView mList;
+    private ResultAdapter mAdapter;
+    private View.OnTouchListener mTouchListener;
+    // Text size of the results, which the badges of the table format follow
+    private float mTextSize;
     private WebView mWebView;
     private final boolean showFavoriteButton;
     private final Entry mEntry = new Entry();
     private boolean showMenu;
     private final HashMap<String, String> mRaws = new HashMap<>();
+    // Where the shown results end while more of them can be loaded
+    private DB.PageKey mPageKey;
+    private boolean mLoading;
+    private static final int WEB_BATCH = 10;
+    // The page shown by mWebView, and the scripts waiting for it to finish loading
+    private String mWebShell;
+    private boolean mWebReady;
+    private final List<String> mWebScripts = new ArrayList<>();
+    // Counts the searches shown in mWebView, so that rows of a replaced one are dropped
+    private int mWebGeneration;
     private final int GROUP_READING = 1;
 
     private final int MSG_SEARCH_HOMOPHONE = 1;
@@ -161,19 +186,15 @@ public class ResultFragment extends Fragment {
         mWebView = selfView.findViewById(R.id.map);
         mWebView.setTag(this);
         registerForContextMenu(mWebView);
-        mTextView = new TextView(requireContext());
-        mTextView.setTextAppearance(R.style.FontDetail);
-        FontUtil.setTypeface(mTextView);
-        mTextView.setTextIsSelectable(true);
-        mTextView.setMovementMethod(LinkMovementMethod.getInstance());
-        LinearLayout layout = selfView.findViewById(R.id.layout);
-        layout.addView(mTextView);
-        mTextView.setTag(this);
-        registerForContextMenu(mTextView);
+        mList = selfView.findViewById(R.id.list);
+        mList.setLayoutManager(new LinearLayoutManager(requireContext()));
+        TextView textView = new TextView(requireContext());
+        textView.setTextAppearance(R.style.FontDetail);
+        mTextSize = textView.getTextSize();
         Orthography.setToneStyle(Pref.getToneStyle(R.string.pref_key_tone_display));
         Orthography.setToneValueStyle(Pref.getToneStyle(R.string.pref_key_tone_value_display));
 
-        View.OnTouchListener listener = new View.OnTouchListener() {
+        mTouchListener = new View.OnTouchListener() {
             private final GestureDetector gestureDetector = new GestureDetector(requireActivity(), new GestureDetector.SimpleOnGestureListener() {
                 @Override
                 public boolean onDoubleTap(@NonNull MotionEvent e) {
@@ -188,8 +209,41 @@ public class ResultFragment extends Fragment {
                 return false;
             }
         };
-        mTextView.setOnTouchListener(listener);
-        mWebView.setOnTouchListener(listener);
+        mWebView.setOnTouchListener(mTouchListener);
+        mWebView.setWebViewClient(new WebViewClient() {
+            @Override
+            public void onPageFinished(android.webkit.WebView view, String url) {
+                mWebReady = true;
+                for (String script : mWebScripts) {
+                    view.evaluateJavascript(script, null);
+                }
+                mWebScripts.clear();
+            }
+
+            // Links open outside as they did before the page had a client
+            @Override
+            public boolean shouldOverrideUrlLoading(android.webkit.WebView view, WebResourceRequest request) {
+                try {
+                    startActivity(new Intent(Intent.ACTION_VIEW, request.getUrl()));
+                } catch (ActivityNotFoundException ignored) {
+                }
+                return true;
+            }
+        });
+        mScroll.setOnScrollChangeListener((v, x, y, oldX, oldY) -> {
+            // Load the next page when the end of the results is less than a screen away
+            if (mPageKey == null || mLoading) return;
+            View child = ((ViewGroup) v).getChildAt(0);
+            if (y + 2 * v.getHeight() >= child.getHeight()) loadMore();
+        });
+        mList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (mPageKey == null || mLoading) return;
+                LinearLayoutManager manager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (manager != null && manager.findLastVisibleItemPosition() + DB.PAGE_SIZE / 4 >= manager.getItemCount()) loadMore();
+            }
+        });
         return selfView;
     }
 
@@ -202,11 +256,11 @@ public class ResultFragment extends Fragment {
     public void onResume() {
         super.onResume();
         if (Pref.getDisplayFormat() == 2) {
-            mTextView.setVisibility(View.GONE);
-            mWebView.setVisibility(View.VISIBLE);
+            mList.setVisibility(View.GONE);
+            mScroll.setVisibility(View.VISIBLE);
         } else {
-            mTextView.setVisibility(View.VISIBLE);
-            mWebView.setVisibility(View.GONE);
+            mList.setVisibility(View.VISIBLE);
+            mScroll.setVisibility(View.GONE);
         }
 
     }
@@ -358,7 +412,8 @@ public class ResultFragment extends Fragment {
         //listView.setSelectionAfterHeaderView();
     }
 
-    private void setWebData(String query, Cursor cursor) {
+    // The page the web results are appended to, loaded again only when the fonts change
+    private String getWebShell() {
         StringBuilder sb = new StringBuilder();
         sb.append("""
                 <html><head><style>
@@ -456,344 +511,435 @@ public class ResultFragment extends Fragment {
                               }
                               rt {font-size: 0.9em; background-color: #F0FFF0;}
                           </style></head><body>
+                          <nav id=nav></nav><div id=results class=row></div>
+                          <script>
+                            function clearResults() {
+                              document.getElementById('nav').innerHTML = '';
+                              document.getElementById('results').innerHTML = '';
+                            }
+                            function appendResults(html) {
+                              document.getElementById('results').insertAdjacentHTML('beforeend', html);
+                            }
+                            function setNav(html) {
+                              document.getElementById('nav').innerHTML = html;
+                            }
+                          </script>
+                          </body></html>
                         """);
-        if (TextUtils.isEmpty(query)) {
-            sb.append(DB.getIntro());
-        } else if (cursor == null || cursor.getCount() == 0) {
-            sb.append(getString(R.string.no_matches));
-        } else {
-            StringBuilder ssb = new StringBuilder();
-            int n = cursor.getCount();
-            String[] cols = DB.getVisibleColumns();
-            String lang = Pref.getLabel();
-            boolean isZY = DB.isLang(lang) && query.length() >= 3 && n >= 3
-                    && !HanZi.isBS(query)
-                    && HanZi.isHz(query);
-            Map<String, String> pys = new HashMap<>();
-            StringBuilder hzs = new StringBuilder();
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                String hz = cursor.getString(COL_HZ);
-                int i = cursor.getColumnIndex(lang);
-                CharSequence py = DisplayHelper.formatIPA(lang, DisplayHelper.getRawText(cursor.getString(i)));
-                if (isZY) {
-                    pys.put(hz, py.toString());
-                } else {
-                    //hzs.append(String.format("<a href=\"#%s\">%s</a>&nbsp;", hz, hz));
-                    hzs.append(hz);
-                }
-                String s = cursor.getString(cursor.getColumnIndexOrThrow(VARIANTS));
-                if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
-                    s = String.format("(%s)", s);
-                } else s = "";
-                int current = cursor.getPosition();
-                boolean openDetails = current < 3 && !HanZi.isUnknown(hz);
-                ssb.append(String.format("<details %s><summary>" +
-                        "<div class=hz>%s</div><div class=variant>%s</div></summary>", openDetails ? "open" : "", hz, s));
-                ssb.append("<div style='display: block; float:right; margin-top: -2em;'>");
-                String unicode = HanZi.toUnicode(hz);
-                ssb.append(String.format("<div class=y onclick='mcpdict.showDict(\"%s\", %s, \"%s\")'>%s</div>", hz, COL_HZ, getUnicode(cursor), unicode));
-                StringBuilder raws = new StringBuilder();
-                raws.append(String.format("%s %s\n", hz, s));
-                for (int j = COL_FIRST_DICT; j <= COL_LAST_DICT; j++) {
-                    s = cursor.getString(j);
-                    if (TextUtils.isEmpty(s)) continue;
-                    String col = getColumn(j);
-                    s = s.replace("\n", "<br>");
-                    ssb.append(String.format(Locale.CHINESE,"<div class=y onclick='mcpdict.showDict(\"%s\", %d, \"%s\")'>%s</div>", hz, j, s, col));
-                }
-                ssb.append(String.format("<div class=y onclick='mcpdict.showMap(\"%s\")'>%s</div>", hz, DB.MAP));
-                // "Favorite" button
-                String comment = cursor.getString(cursor.getColumnIndexOrThrow(COMMENT));
-                boolean bFavorite = cursor.getInt(cursor.getColumnIndexOrThrow(DB.IS_FAVORITE)) == 1;
-                int favorite = bFavorite ? 1 : 0;
-                if (showFavoriteButton) {
-                    String label = bFavorite ? "⭐":"⛤";
-                    ssb.append(String.format(Locale.CHINESE,"<div class=y onclick='mcpdict.showFavorite(\"%s\", %d, \"%s\")'>&nbsp;%s&nbsp;</div>", hz, favorite, comment, label));
+        return sb.toString();
+    }
+
+    private void showWebShell() {
+        mWebScripts.clear();
+        String shell = getWebShell();
+        if (shell.equals(mWebShell)) {
+            runWebScript("clearResults()");
+            return;
+        }
+        mWebShell = shell;
+        mWebReady = false;
+        mWebView.loadDataWithBaseURL(null, shell, "text/html", "utf-8", null);
+    }
+
+    // Scripts sent before the page has finished loading wait for it
+    private void runWebScript(String script) {
+        if (mWebReady) mWebView.evaluateJavascript(script, null);
+        else mWebScripts.add(script);
+    }
+
+    // Builds the rows of the web format in the background and appends them to the page WEB_BATCH rows at a time.
+    // The rows after key are searched for when it is not null.
+    private void appendWebData(String query, Cursor cursor, DB.PageKey key) {
+        int generation = mWebGeneration;
+        boolean more = key != null;
+        if (more) mLoading = true;
+        new AsyncTask<Void, WebBatch, String>() {
+            private DB.PageKey next;
+
+            @Override
+            protected String doInBackground(Void... params) {
+                Cursor c = more ? DB.search(null, key) : cursor;
+                String nav = getWebData(query, c, more, (html, raws) -> publishProgress(new WebBatch(html, raws)));
+                next = DB.getPageKey(c);
+                if (c != null) c.close();
+                return nav;
+            }
+
+            @Override
+            protected void onProgressUpdate(WebBatch... values) {
+                if (generation != mWebGeneration) return;
+                for (WebBatch batch : values) {
+                    mRaws.putAll(batch.raws);
+                    runWebScript("appendResults(" + JSONObject.quote(batch.html) + ")");
                 }
-                ssb.append("</div>");
-                String fq = "";
-                String fqTemp;
-                boolean opened = false;
-                if (HanZi.isUnknown(hz)) {
-                    String col = Pref.getLabel();
-                    if (!DB.isLang(col)) continue;
-                    int index = DB.getColumnIndex(col);
-                    s = cursor.getString(index);
+            }
+
+            @Override
+            protected void onPostExecute(String nav) {
+                if (more) mLoading = false;
+                // The results were replaced while these were built
+                if (generation != mWebGeneration) return;
+                mPageKey = next;
+                if (!TextUtils.isEmpty(nav)) runWebScript("setNav(" + JSONObject.quote(nav) + ")");
+            }
+        }.execute();
+    }
+
+    // Rows of the web format with the readings to copy of their characters
+    private static class WebBatch {
+        final String html;
+        final Map<String, String> raws;
+
+        WebBatch(String html, Map<String, String> raws) {
+            this.html = html;
+            this.raws = raws;
+        }
+    }
+
+    // Hands the rows to out in batches, with the readings to copy that the UI thread merges into mRaws,
+    // and returns the navigation line shown above them
+    private String getWebData(String query, Cursor cursor, boolean more, BiConsumer<String, Map<String, String>> out) {
+        if (more) {
+            if (cursor == null || cursor.getCount() == 0) return "";
+        } else if (TextUtils.isEmpty(query)) {
+            out.accept(DB.getIntro(), Collections.emptyMap());
+            return "";
+        } else if (cursor == null || cursor.getCount() == 0) {
+            out.accept(getString(R.string.no_matches), Collections.emptyMap());
+            return "";
+        }
+        Map<String, String> batchRaws = new HashMap<>();
+        StringBuilder sb = new StringBuilder();
+        StringBuilder ssb = new StringBuilder();
+        int n = cursor.getCount();
+        VisibleColumns plan = DB.getVisiblePlan();
+        String lang = Pref.getLabel();
+        Projection projection = plan.getProjection(lang);
+        int variants = cursor.getColumnIndexOrThrow(VARIANTS);
+        boolean isZY = !more && DB.isLang(lang) && query.length() >= 3 && n >= 3
+                && !HanZi.isBS(query)
+                && HanZi.isHz(query);
+        // Characters of the query that are not among the results are looked up for the ruby line
+        Annotator annotator = new Annotator(lang, 200);
+        StringBuilder hzs = new StringBuilder();
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            if (ssb.length() > 0 && cursor.getPosition() % WEB_BATCH == 0) {
+                out.accept(ssb.toString(), batchRaws);
+                ssb.setLength(0);
+                batchRaws = new HashMap<>();
+            }
+            String hz = cursor.getString(COL_HZ);
+            if (isZY) {
+                annotator.put(hz, DisplayHelper.getRawText(projection.getString(cursor, lang)));
+            } else {
+                //hzs.append(String.format("<a href=\"#%s\">%s</a>&nbsp;", hz, hz));
+                hzs.append(hz);
+            }
+            String s = cursor.getString(variants);
+            if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
+                s = String.format("(%s)", s);
+            } else s = "";
+            int current = cursor.getPosition();
+            boolean openDetails = current < 3 && !HanZi.isUnknown(hz);
+            ssb.append(String.format("<details %s><summary>" +
+                    "<div class=hz>%s</div><div class=variant>%s</div></summary>", openDetails ? "open" : "", hz, s));
+            ssb.append("<div style='display: block; float:right; margin-top: -2em;'>");
+            String unicode = HanZi.toUnicode(hz);
+            ssb.append(String.format("<div class=y onclick='mcpdict.showDict(\"%s\", %s, \"%s\")'>%s</div>", hz, COL_HZ, getUnicode(cursor), unicode));
+            StringBuilder raws = new StringBuilder();
+            raws.append(String.format("%s %s\n", hz, s));
+            for (int j = COL_FIRST_DICT; j <= COL_LAST_DICT; j++) {
+                s = cursor.getString(j);
+                if (TextUtils.isEmpty(s)) continue;
+                String col = getColumn(j);
+                s = s.replace("\n", "<br>");
+                ssb.append(String.format(Locale.CHINESE,"<div class=y onclick='mcpdict.showDict(\"%s\", %d, \"%s\")'>%s</div>", hz, j, s, col));
+            }
+            ssb.append(String.format("<div class=y onclick='mcpdict.showMap(\"%s\")'>%s</div>", hz, DB.MAP));
+            // "Favorite" button
+            String comment = UserDB.getComment(hz);
+            boolean bFavorite = UserDB.isFavorite(hz);
+            int favorite = bFavorite ? 1 : 0;
+            if (showFavoriteButton) {
+                String label = bFavorite ? "⭐":"⛤";
+                ssb.append(String.format(Locale.CHINESE,"<div class=y onclick='mcpdict.showFavorite(\"%s\", %d, \"%s\")'>&nbsp;%s&nbsp;</div>", hz, favorite, comment, label));
+            }
+            ssb.append("</div>");
+            boolean opened = false;
+            if (HanZi.isUnknown(hz)) {
+                String col = lang;
+                if (!DB.isLang(col)) continue;
+                s = projection.getString(cursor, col);
+                if (TextUtils.isEmpty(s)) continue;
+                ssb.append(String.format("<details open><summary>%s</summary>", DB.getWebFq(col)));
+                CharSequence ipa = DisplayHelper.formatUnknownIPA(col, s);
+                String raw = DisplayHelper.getRawText(s);
+                String label = DB.getLabel(col);
+                ssb.append(String.format(Locale.CHINESE,"<div onclick='mcpdict.onClick(\"%s\", \"%s\", \"%s\", %d, \"%s\",event.pageX, event.pageY)' class=row><div class=place style='background: linear-gradient(to left, %s, %s);'>%s</div><br><div class=ipa>%s</div></div>",
+                        hz, col, raw, favorite, comment,
+                        DB.getHexColor(col), DB.getHexSubColor(col), label, ipa));
+                raws.append(formatReading(label, raw));
+            } else {
+                // A section is opened by its first language with a reading
+                boolean section = false;
+                for (int k = 0; k < plan.size(); k++) {
+                    if (plan.isSectionStart(k)) section = true;
+                    s = plan.getString(cursor, k);
                     if (TextUtils.isEmpty(s)) continue;
-                    fqTemp = DB.getWebFq(col);
-                    if (!fqTemp.contentEquals(fq)) {
-                        ssb.append(String.format("<details open><summary>%s</summary>", fqTemp));
+                    String col = plan.getLabel(k);
+                    if (section) {
+                        if (opened) ssb.append("</details>");
+                        ssb.append(String.format("<details open><summary>%s</summary>", plan.getFq(k)));
+                        opened = true;
+                        section = false;
                     }
-                    CharSequence ipa = DisplayHelper.formatUnknownIPA(col, s);
+                    CharSequence ipa = DisplayHelper.formatIPA(col, s);
                     String raw = DisplayHelper.getRawText(s);
                     String label = DB.getLabel(col);
-                    ssb.append(String.format(Locale.CHINESE,"<div onclick='mcpdict.onClick(\"%s\", \"%s\", \"%s\", %d, \"%s\",event.pageX, event.pageY)' class=row><div class=place style='background: linear-gradient(to left, %s, %s);'>%s</div><br><div class=ipa>%s</div></div>",
+                    ssb.append(String.format(Locale.CHINESE,"<div onclick='mcpdict.onClick(\"%s\", \"%s\", \"%s\", %d, \"%s\",event.pageX, event.pageY)' class=row><div class=place style='background: linear-gradient(to left, %s, %s);'>%s</div><div class=ipa>%s</div></div>",
                             hz, col, raw, favorite, comment,
-                            DB.getHexColor(col), DB.getHexSubColor(col), label, ipa));
+                            plan.getHexColor(k), plan.getHexSubColor(k), label, ipa));
                     raws.append(formatReading(label, raw));
-                } else {
-                    for (String col : cols) {
-                        int index = DB.getColumnIndex(col);
-                        s = cursor.getString(index);
-                        if (TextUtils.isEmpty(s)) continue;
-                        fqTemp = DB.getWebFq(col);
-                        if (!fqTemp.contentEquals(fq)) {
-                            if (opened) ssb.append("</details>");
-                            ssb.append(String.format("<details open><summary>%s</summary>", fqTemp));
-                            opened = true;
-                        }
-                        CharSequence ipa = DisplayHelper.formatIPA(col, s);
-                        String raw = DisplayHelper.getRawText(s);
-                        String label = DB.getLabel(col);
-                        ssb.append(String.format(Locale.CHINESE,"<div onclick='mcpdict.onClick(\"%s\", \"%s\", \"%s\", %d, \"%s\",event.pageX, event.pageY)' class=row><div class=place style='background: linear-gradient(to left, %s, %s);'>%s</div><div class=ipa>%s</div></div>",
-                                hz, col, raw, favorite, comment,
-                                DB.getHexColor(col), DB.getHexSubColor(col), label, ipa));
-                        fq = fqTemp;
-                        raws.append(formatReading(label, raw));
-                    }
                 }
-                mRaws.put(hz, raws.toString());
-                if (opened) ssb.append("</details>");
-                ssb.append("</details>");
             }
-            if (isZY) {
-                sb.append("<nav>");
-                for (int unicode : query.codePoints().toArray()) {
-                    if (!HanZi.isHz(unicode)) continue;
-                    String hz = HanZi.toHz(unicode);
-                    sb.append(String.format("<ruby>%s<rt>%s</rt></ruby>&nbsp;&nbsp;&nbsp;&nbsp;", hz, pys.getOrDefault(hz, "")));
+            batchRaws.put(hz, raws.toString());
+            if (opened) ssb.append("</details>");
+            ssb.append("</details>");
+        }
+        if (ssb.length() > 0) out.accept(ssb.toString(), batchRaws);
+        if (isZY) {
+            annotator.annotate(query, (chars, readings) -> {
+                for (int k = 0; k < chars.length; k++) {
+                    if (!HanZi.isHz(chars[k])) continue;
+                    String py = readings[k] == null ? "" : DisplayHelper.formatIPA(lang, readings[k]).toString();
+                    sb.append(String.format("<ruby>%s<rt>%s</rt></ruby>&nbsp;&nbsp;&nbsp;&nbsp;", chars[k], py));
                 }
-                sb.append("</nav>");
-            } else if (n >= 2){
-                sb.append("<nav>");
-                sb.append(hzs);
-                sb.append("</nav>");
-            }
-            sb.append(ssb);
+            });
+        } else if (!more && n >= 2){
+            sb.append(hzs);
         }
-        mWebView.loadDataWithBaseURL(null, sb.toString(), "text/html", "utf-8", null);
+        return sb.toString();
     }
 
-    private CharSequence setTextData(String query, Cursor cursor) {
-        SpannableStringBuilder sb = new SpannableStringBuilder();
-        if (TextUtils.isEmpty(query)) {
-            sb.append(HtmlCompat.fromHtml(DB.getIntro(), HtmlCompat.FROM_HTML_MODE_COMPACT));
-        } else if (cursor == null || cursor.getCount() == 0) {
-            sb.append(getString(R.string.no_matches));
-        } else {
-            StringBuilder hzs = new StringBuilder();
-            int count = cursor.getCount();
-            String[] cols = DB.getVisibleColumns();
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                String hz = cursor.getString(COL_HZ);
-                sb.append(hz);
-                hzs.append(hz);
-                // Variants
-                String s = cursor.getString(cursor.getColumnIndexOrThrow(VARIANTS));
-                if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
-                    s = String.format("(%s)", s);
-                    sb.append(s);
-                }
-                String unicode = HanZi.toUnicode(hz);
-                sb.append(" ").append(unicode);
-                // DICTS
-                for (int i = COL_FIRST_DICT; i <= COL_LAST_DICT; i++) {
-                    s = cursor.getString(i);
-                    if (!TextUtils.isEmpty(s)) {
-                        sb.append(" ").append(getLabel(i));
-                    }
-                }
-                sb.append("\n");
-                StringBuilder sb2 = new StringBuilder();
-                if (HanZi.isUnknown(hz)) {
-                    String col = Pref.getLabel();
-                    if (!DB.isLang(col)) continue;
-                    int i = cursor.getColumnIndex(col);
-                    s = cursor.getString(i);
-                    if (TextUtils.isEmpty(s)) continue;
-                    String label = getLabel(col);
-                    sb2.append(String.format("［%s］", label));
-                    sb2.append(HtmlCompat.fromHtml(DisplayHelper.formatUnknownIPA(col, s).toString(),HtmlCompat.FROM_HTML_MODE_COMPACT));
-                    sb2.append("\n");
-                } else {
-                    for (String col : cols) {
-                        int i = cursor.getColumnIndex(col);
-                        s = cursor.getString(i);
-                        if (TextUtils.isEmpty(s)) continue;
-                        String label = getLabel(col);
-                        sb2.append(String.format("［%s］", label));
-                        sb2.append(HtmlCompat.fromHtml(DisplayHelper.formatIPA(col, s).toString(), HtmlCompat.FROM_HTML_MODE_COMPACT));
-                        sb2.append("\n");
-                    }
-                }
-                if (!TextUtils.isEmpty(sb2)) {
-                    sb.append("──────────\n");
-                    sb.append(sb2);
-                }
-                if (!cursor.isLast()) sb.append("══════════\n");
+    private CharSequence formatText(Cursor cursor, boolean first) {
+        StringBuilder sb = new StringBuilder();
+        if (!first) sb.append("══════════\n");
+        String hz = cursor.getString(COL_HZ);
+        sb.append(hz);
+        // Variants
+        String s = cursor.getString(cursor.getColumnIndexOrThrow(VARIANTS));
+        if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
+            s = String.format("(%s)", s);
+            sb.append(s);
+        }
+        String unicode = HanZi.toUnicode(hz);
+        sb.append(" ").append(unicode);
+        // DICTS
+        for (int i = COL_FIRST_DICT; i <= COL_LAST_DICT; i++) {
+            s = cursor.getString(i);
+            if (!TextUtils.isEmpty(s)) {
+                sb.append(" ").append(getLabel(i));
             }
-            if (count > 1) {
-                hzs.append("\n══════════\n");
-                sb.insert(0, hzs);
+        }
+        sb.append("\n");
+        StringBuilder sb2 = new StringBuilder();
+        VisibleColumns plan = DB.getVisiblePlan();
+        if (HanZi.isUnknown(hz)) {
+            String col = Pref.getLabel();
+            if (!DB.isLang(col)) return sb;
+            s = plan.getProjection(col).getString(cursor, col);
+            if (TextUtils.isEmpty(s)) return sb;
+            String label = getLabel(col);
+            sb2.append(String.format("［%s］", label));
+            sb2.append(DisplayHelper.formatIPASpans(col, DisplayHelper.getUnknownReadings(s)));
+            sb2.append("\n");
+        } else {
+            for (int k = 0; k < plan.size(); k++) {
+                s = plan.getString(cursor, k);
+                if (TextUtils.isEmpty(s)) continue;
+                String col = plan.getLabel(k);
+                String label = getLabel(col);
+                sb2.append(String.format("［%s］", label));
+                sb2.append(DisplayHelper.formatIPASpans(col, s));
+                sb2.append("\n");
             }
         }
+        if (!TextUtils.isEmpty(sb2)) {
+            sb.append("──────────\n");
+            sb.append(sb2);
+        }
         return sb.toString();
     }
 
-    private SpannableStringBuilder setTableData(String query, Cursor cursor) {
+    private CharSequence formatTable(Cursor cursor) {
         SpannableStringBuilder ssb = new SpannableStringBuilder();
-        if (TextUtils.isEmpty(query)) {
-            ssb.append(HtmlCompat.fromHtml(DB.getIntro(), HtmlCompat.FROM_HTML_MODE_COMPACT));
-        } else if (cursor == null || cursor.getCount() == 0) {
-            ssb.append(getString(R.string.no_matches));
+        String s;
+        float fontSize = mTextSize * 0.8f;
+        VisibleColumns plan = DB.getVisiblePlan();
+        String hz = cursor.getString(COL_HZ);
+        String comment = UserDB.getComment(hz);
+        boolean bFavorite = UserDB.isFavorite(hz);
+        int n = ssb.length();
+        ssb.append(hz, new ForegroundColorSpan(getColor(HZ)), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        ssb.setSpan(new RelativeSizeSpan(1.8f), n, ssb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        // Variants
+        s = cursor.getString(cursor.getColumnIndexOrThrow(VARIANTS));
+        if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
+            s = String.format("(%s)", s);
+            ssb.append(s, new ForegroundColorSpan(getResources().getColor(R.color.dim)), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        // Unicode
+        String unicode = HanZi.toUnicode(hz);
+        int color = getColor(SW);
+        ssb.append(" " + unicode + " ", new PopupSpan(DisplayHelper.formatPopUp(hz, COL_HZ, getUnicode(cursor)), COL_HZ, color), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        StringBuilder raws = new StringBuilder();
+        raws.append(String.format("%s %s\n", hz, unicode));
+        // yb
+        SpannableStringBuilder ssb2 = new SpannableStringBuilder();
+        if (HanZi.isUnknown(hz)) {
+            for (int k = 0; k < plan.size(); k++) {
+                s = plan.getString(cursor, k);
+                if (TextUtils.isEmpty(s)) continue;
+                String lang = plan.getLabel(k);
+                String readings = DisplayHelper.getUnknownReadings(s);
+                if (TextUtils.isEmpty(readings)) continue;
+                n = ssb2.length();
+                String label = getLabel(lang);
+                Drawable drawable = BadgeCache.get(getResources(), fontSize, label, plan.getColor(k), plan.getSubColor(k));
+                DrawableMarginSpan span = new DrawableMarginSpan(drawable, 10);
+                ssb2.append(" ", span, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                String raw = DisplayHelper.getRawText(s);
+                Entry e = new Entry(hz, lang, raw, bFavorite, comment);
+                ssb2.setSpan(new MenuSpan(e), n, ssb2.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                DisplayHelper.appendIPA(ssb2, lang, readings);
+                ssb2.append("\n");
+                raws.append(formatReading(label, raw));
+            }
         } else {
-            String s;
-            float fontSize = mTextView.getTextSize() * 0.8f;
-            TextDrawable.IBuilder builder = TextDrawable.builder()
-                    .beginConfig()
-                    .withBorder(3)
-                    .width((int) (fontSize * 3.4f))  // width in px
-                    .height((int) (fontSize * 1.6f)) // height in px
-                    .fontSize(fontSize)
-                    .endConfig()
-                    .roundRect(5);
-            StringBuilder hzs = new StringBuilder();
-            int count = cursor.getCount();
-            String[] cols = DB.getVisibleColumns();
-            int index = 0;
-            int linesCount = 0;
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                String hz = cursor.getString(COL_HZ);
-                hzs.append(hz);
-
-                String comment = cursor.getString(cursor.getColumnIndexOrThrow(COMMENT));
-                boolean bFavorite = cursor.getInt(cursor.getColumnIndexOrThrow(DB.IS_FAVORITE)) == 1;
-                int n = ssb.length();
-                ssb.append(hz, new ForegroundColorSpan(getColor(HZ)), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                ssb.setSpan(new RelativeSizeSpan(1.8f), n, ssb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                // Variants
-                s = cursor.getString(cursor.getColumnIndexOrThrow(VARIANTS));
-                if (!TextUtils.isEmpty(s) && !s.contentEquals(hz)) {
-                    s = String.format("(%s)", s);
-                    ssb.append(s, new ForegroundColorSpan(getResources().getColor(R.color.dim)), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-                // Unicode
-                String unicode = HanZi.toUnicode(hz);
-                int color = getColor(SW);
-                ssb.append(" " + unicode + " ", new PopupSpan(DisplayHelper.formatPopUp(hz, COL_HZ, getUnicode(cursor)), COL_HZ, color), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                StringBuilder raws = new StringBuilder();
-                raws.append(String.format("%s %s\n", hz, unicode));
-                // yb
-                SpannableStringBuilder ssb2 = new SpannableStringBuilder();
-                if (HanZi.isUnknown(hz)) {
-                    for (String lang: cols) {
-                        int i = getColumnIndex(lang);
-                        s = cursor.getString(i);
-                        if (TextUtils.isEmpty(s)) continue;
-                        CharSequence html = DisplayHelper.formatUnknownIPA(lang, s);
-                        if (TextUtils.isEmpty(html)) continue;
-                        CharSequence cs = HtmlCompat.fromHtml(html.toString(), HtmlCompat.FROM_HTML_MODE_COMPACT);
-                        n = ssb2.length();
-                        String label = getLabel(i);
-                        Drawable drawable = builder.build(label, getColor(lang), getSubColor(lang));
-                        DrawableMarginSpan span = new DrawableMarginSpan(drawable, 10);
-                        ssb2.append(" ", span, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                        String raw = DisplayHelper.getRawText(s);
-                        Entry e = new Entry(hz, lang, raw, bFavorite, comment);
-                        ssb2.setSpan(new MenuSpan(e), n, ssb2.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                        ssb2.append(cs);
-                        ssb2.append("\n");
-                        raws.append(formatReading(label, raw));
-                    }
-                } else {
-                    for (String lang : cols) {
-                        int i = getColumnIndex(lang);
-                        s = cursor.getString(i);
-                        if (TextUtils.isEmpty(s)) continue;
-                        linesCount++;
-                        CharSequence cs = HtmlCompat.fromHtml(DisplayHelper.formatIPA(lang, s).toString(),HtmlCompat.FROM_HTML_MODE_COMPACT);
-                        n = ssb2.length();
-                        String label = getLabel(i);
-                        Drawable drawable = builder.build(label, getColor(lang), getSubColor(lang));
-                        DrawableMarginSpan span = new DrawableMarginSpan(drawable, 10);
-                        ssb2.append(" ", span, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                        String raw = DisplayHelper.getRawText(s);
-                        Entry e = new Entry(hz, lang, raw, bFavorite, comment);
-                        ssb2.setSpan(new MenuSpan(e), n, ssb2.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                        ssb2.append(cs);
-                        ssb2.append("\n");
-                        raws.append(formatReading(label, raw));
-                    }
-                }
-                mRaws.put(hz, raws.toString());
-                // DICTS
-                for (int i = COL_FIRST_DICT; i <= COL_LAST_DICT; i++) {
-                    s = cursor.getString(i);
-                    if (!TextUtils.isEmpty(s)) {
-                        ssb.append(" " + getLabel(i) + " ", new PopupSpan(DisplayHelper.formatPopUp(hz, i, s), i, color), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                    }
-                }
-                // Map
-                if (!TextUtils.isEmpty(ssb2)) {
-                    ssb.append(DB.MAP + " ", new PopupSpan(hz, 0, color) {
-                        @Override
-                        public void onClick(@NonNull View view) {
-                            view.post(() -> showMap(hz));
-                        }
-                    }, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-                // Favorite
-                if (showFavoriteButton) {
-                    String label = bFavorite ? "⭐":"⛤";
-                    ssb.append(" " + label + " ", new PopupSpan(hz, 0, color) {
-                        @Override
-                        public void onClick(@NonNull View view) {
-                            showFavorite(hz, bFavorite, comment);
-                        }
-                    }, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
-                ssb.append("\n");
-                if (linesCount > 1000) continue;
-                index++;
-                ssb.append(ssb2);
+            for (int k = 0; k < plan.size(); k++) {
+                s = plan.getString(cursor, k);
+                if (TextUtils.isEmpty(s)) continue;
+                String lang = plan.getLabel(k);
+                n = ssb2.length();
+                String label = getLabel(lang);
+                Drawable drawable = BadgeCache.get(getResources(), fontSize, label, plan.getColor(k), plan.getSubColor(k));
+                DrawableMarginSpan span = new DrawableMarginSpan(drawable, 10);
+                ssb2.append(" ", span, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                String raw = DisplayHelper.getRawText(s);
+                Entry e = new Entry(hz, lang, raw, bFavorite, comment);
+                ssb2.setSpan(new MenuSpan(e), n, ssb2.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                DisplayHelper.appendIPA(ssb2, lang, s);
+                ssb2.append("\n");
+                raws.append(formatReading(label, raw));
             }
-            if (count > 1) {
-                hzs.append("\n");
-                ssb.insert(0, hzs);
+        }
+        mRaws.put(hz, raws.toString());
+        // DICTS
+        for (int i = COL_FIRST_DICT; i <= COL_LAST_DICT; i++) {
+            s = cursor.getString(i);
+            if (!TextUtils.isEmpty(s)) {
+                ssb.append(" " + getLabel(i) + " ", new PopupSpan(DisplayHelper.formatPopUp(hz, i, s), i, color), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
             }
         }
+        // Map
+        if (!TextUtils.isEmpty(ssb2)) {
+            ssb.append(DB.MAP + " ", new PopupSpan(hz, 0, color) {
+                @Override
+                public void onClick(@NonNull View view) {
+                    view.post(() -> showMap(hz));
+                }
+            }, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        // Favorite
+        if (showFavoriteButton) {
+            String label = bFavorite ? "⭐":"⛤";
+            ssb.append(" " + label + " ", new PopupSpan(hz, 0, color) {
+                @Override
+                public void onClick(@NonNull View view) {
+                    showFavorite(hz, bFavorite, comment);
+                }
+            }, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        ssb.append("\n");
+        ssb.append(ssb2);
         return ssb;
     }
 
-    private CharSequence getTextData(String query, Cursor cursor, int format) {
-        if (format == 0) return setTextData(query, cursor);
-        return setTableData(query, cursor);
+    // The characters of the results on one line above them
+    private CharSequence getHzs(Cursor cursor, int format) {
+        StringBuilder hzs = new StringBuilder();
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            hzs.append(cursor.getString(COL_HZ));
+        }
+        if (format == 0) hzs.append("\n══════════");
+        return hzs;
+    }
+
+    private ResultAdapter newResultAdapter(int format) {
+        return new ResultAdapter() {
+            @Override
+            public TextView newView(ViewGroup parent) {
+                TextView textView = new TextView(parent.getContext());
+                textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+                textView.setTextAppearance(R.style.FontDetail);
+                FontUtil.setTypeface(textView);
+                textView.setTextIsSelectable(true);
+                textView.setMovementMethod(LinkMovementMethod.getInstance());
+                textView.setTag(ResultFragment.this);
+                textView.setOnTouchListener(mTouchListener);
+                registerForContextMenu(textView);
+                return textView;
+            }
+
+            @Override
+            public CharSequence format(Cursor cursor, boolean first) {
+                return format == 0 ? formatText(cursor, first) : formatTable(cursor);
+            }
+        };
     }
 
     public void setData(String query, Cursor cursor) {
         mRaws.clear();
+        mPageKey = null;
         int format = Pref.getDisplayFormat();
         if (format == 2) { //web
-            setWebData(query, cursor);
-            mWebView.setVisibility(View.VISIBLE);
-            if (cursor != null) cursor.close();
+            mWebGeneration++;
+            showWebShell();
+            mList.setVisibility(View.GONE);
+            mScroll.setVisibility(View.VISIBLE);
             mScroll.setScrollY(0);
+            appendWebData(query, cursor, null);
         } else {
-            FontUtil.setTypeface(mTextView);
             Log.d(TAG, "setData begin");
-            new AsyncTask<Void, Void, CharSequence>() {
+            new AsyncTask<Void, Void, Cursor>() {
+                private DB.PageKey next;
+                private CharSequence header;
+
                 @Override
-                protected CharSequence doInBackground(Void... params) {
-                    CharSequence ssb = getTextData(query, cursor, format);
+                protected Cursor doInBackground(Void... params) {
+                    Cursor page = null;
+                    if (TextUtils.isEmpty(query)) {
+                        header = HtmlCompat.fromHtml(DB.getIntro(), HtmlCompat.FROM_HTML_MODE_COMPACT);
+                    } else if (cursor == null || cursor.getCount() == 0) {
+                        header = getString(R.string.no_matches);
+                    } else {
+                        if (cursor.getCount() > 1) header = getHzs(cursor, format);
+                        page = ResultAdapter.copy(cursor);
+                    }
+                    next = DB.getPageKey(cursor);
                     if (cursor != null) cursor.close();
-                    return ssb;
+                    return page;
                 }
 
                 @Override
-                protected void onPostExecute(CharSequence text) {
-                    mTextView.setText(text);
-                    mTextView.setVisibility(View.VISIBLE);
-                    mScroll.setScrollY(0);
+                protected void onPostExecute(Cursor page) {
+                    mPageKey = next;
+                    mAdapter = newResultAdapter(format);
+                    if (header != null) mAdapter.addText(header);
+                    mAdapter.addPage(page);
+                    mList.setAdapter(mAdapter);
+                    mScroll.setVisibility(View.GONE);
+                    mList.setVisibility(View.VISIBLE);
                     Log.d(TAG, "setData finished");
                 }
             }.execute();
@@ -803,6 +949,39 @@ public class ResultFragment extends Fragment {
     public void setData(Cursor cursor) {
         setData(Pref.getInput(), cursor);
     }
+
+    private void loadMore() {
+        DB.PageKey key = mPageKey;
+        String query = Pref.getInput();
+        int format = Pref.getDisplayFormat();
+        if (format == 2) {
+            appendWebData(query, null, key);
+            return;
+        }
+        ResultAdapter adapter = mAdapter;
+        mLoading = true;
+        new AsyncTask<Void, Void, Cursor>() {
+            private DB.PageKey next;
+
+            @Override
+            protected Cursor doInBackground(Void... params) {
+                Cursor cursor = DB.search(null, key);
+                Cursor page = ResultAdapter.copy(cursor);
+                next = DB.getPageKey(cursor);
+                if (cursor != null) cursor.close();
+                return page;
+            }
+
+            @Override
+            protected void onPostExecute(Cursor page) {
+                mLoading = false;
+                // The results were replaced while this page was loading
+                if (key != mPageKey || adapter != mAdapter) return;
+                mPageKey = next;
+                adapter.addPage(page);
+            }
+        }.execute();
+    }
     public void showContextMenu(float x, float y) {
         requireActivity().runOnUiThread(() -> {
             if (!mWebView.isDirty()) {
@@ -0,0 +1,170 @@
+package com.osfans.mcpdict;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The column layout of mcpdict and the whole info table, written once per database version next to
+// the extracted database, so that a cold start maps one file instead of querying both tables
+public class Snapshot {
+    private static final int MAGIC = 0x4d435044;
+    private static final int FORMAT = 3;
+
+    public final String[] columns;
+    public final String[] fields;
+    public final int[] rowids;
+    public final String[][] values;
+    // null when the database has no toneless table
+    public final String[] tonelessColumns;
+    // The optional tables the database has
+    public final String[] tables;
+    // Labels shown and searched under each FQ column, in the order of that FQ
+    public final Map<String, String[]> labels, searchColumns;
+
+    public Snapshot(String[] columns, String[] fields, int[] rowids, String[][] values, String[] tonelessColumns,
+                    String[] tables, Map<String, String[]> labels, Map<String, String[]> searchColumns) {
+        this.columns = columns;
+        this.fields = fields;
+        this.rowids = rowids;
+        this.values = values;
+        this.tonelessColumns = tonelessColumns;
+        this.tables = tables;
+        this.labels = labels;
+        this.searchColumns = searchColumns;
+    }
+
+    public static Snapshot of(String[] columns, LanguageRegistry registry, String[] tonelessColumns,
+                              String[] tables, Map<String, String[]> labels, Map<String, String[]> searchColumns) {
+        List<LanguageRegistry.Language> languages = registry.getLanguages();
+        int n = languages.size();
+        int[] rowids = new int[n];
+        String[][] values = new String[n][];
+        for (int i = 0; i < n; i++) {
+            rowids[i] = languages.get(i).rowid;
+            values[i] = languages.get(i).getValues();
+        }
+        return new Snapshot(columns, registry.getFields(), rowids, values, tonelessColumns, tables, labels, searchColumns);
+    }
+
+    // null when the file is missing, unreadable or from another database version
+    public static Snapshot read(File file) {
+        if (!file.isFile()) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT || buffer.getInt() != BuildConfig.DB_VER) return null;
+            String[] columns = readStrings(buffer);
+            String[] fields = readStrings(buffer);
+            int n = buffer.getInt();
+            if (columns == null || fields == null || n < 0 || n > buffer.remaining() / 8) return null;
+            int[] rowids = new int[n];
+            String[][] values = new String[n][];
+            for (int i = 0; i < n; i++) {
+                rowids[i] = buffer.getInt();
+                values[i] = readStrings(buffer);
+            }
+            String[] tonelessColumns = readStrings(buffer);
+            String[] tables = readStrings(buffer);
+            Map<String, String[]> labels = readMap(buffer);
+            Map<String, String[]> searchColumns = readMap(buffer);
+            if (tables == null) return null;
+            return new Snapshot(columns, fields, rowids, values, tonelessColumns, tables, labels, searchColumns);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ignored) {
+        }
+        return null;
+    }
+
+    // Written to a temporary file first, so that a killed process never leaves half a snapshot
+    public void write(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(BuildConfig.DB_VER);
+            writeStrings(out, columns);
+            writeStrings(out, fields);
+            out.writeInt(rowids.length);
+            for (int i = 0; i < rowids.length; i++) {
+                out.writeInt(rowids[i]);
+                writeStrings(out, values[i]);
+            }
+            writeStrings(out, tonelessColumns);
+            writeStrings(out, tables);
+            writeMap(out, labels);
+            writeMap(out, searchColumns);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+
+    // Lengths of -1 stand for null
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] a) throws IOException {
+        if (a == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(a.length);
+        for (String s : a) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String[]> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String[]> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeStrings(out, entry.getValue());
+        }
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int n = buffer.getInt();
+        if (n < 0) return null;
+        if (n > buffer.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[n];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String[] readStrings(MappedByteBuffer buffer) {
+        int n = buffer.getInt();
+        if (n < 0) return null;
+        if (n > buffer.remaining() / 4) throw new BufferUnderflowException();
+        String[] a = new String[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = readString(buffer);
+        }
+        return a;
+    }
+
+    private static Map<String, String[]> readMap(MappedByteBuffer buffer) {
+        int n = buffer.getInt();
+        Map<String, String[]> map = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            String key = readString(buffer);
+            map.put(key, readStrings(buffer));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,51 @@
+package com.osfans.mcpdict.UI;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import com.osfans.mcpdict.ResultCache;
+import com.osfans.mcpdict.Util.FontUtil;
+
+// Label badges of the table format, drawn once into a bitmap and shared by every line showing the same badge.
+// A DrawableMarginSpan sets the bounds before it draws, so one drawable serves all of them.
+public class BadgeCache {
+    private static final int MAX_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8 << 20);
+
+    private static final LruCache<String, BitmapDrawable> cache = new LruCache<>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, BitmapDrawable value) {
+            return value.getBitmap().getByteCount();
+        }
+    };
+
+    public static Drawable get(Resources res, float fontSize, String label, int color, int subColor) {
+        boolean night = (res.getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK) == Configuration.UI_MODE_NIGHT_YES;
+        String key = ResultCache.getKey(label, color, subColor, fontSize, night,
+                System.identityHashCode(FontUtil.getDictTypeface()), FontUtil.getFontFeatureSettings());
+        BitmapDrawable badge = cache.get(key);
+        if (badge != null) return badge;
+        TextDrawable drawable = TextDrawable.builder()
+                .beginConfig()
+                .withBorder(3)
+                .width((int) (fontSize * 3.4f))  // width in px
+                .height((int) (fontSize * 1.6f)) // height in px
+                .fontSize(fontSize)
+                .endConfig()
+                .roundRect(5)
+                .build(label, color, subColor);
+        int width = drawable.getIntrinsicWidth(), height = drawable.getIntrinsicHeight();
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setDensity(res.getDisplayMetrics().densityDpi);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(new Canvas(bitmap));
+        badge = new BitmapDrawable(res, bitmap);
+        badge.setBounds(0, 0, width, height);
+        cache.put(key, badge);
+        return badge;
+    }
+}
@@ -1,7 +1,6 @@
 package com.osfans.mcpdict.UI;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.text.TextUtils;
 import android.view.MotionEvent;
 
@@ -28,6 +27,7 @@ import org.osmdroid.views.overlay.Polygon;
 import org.osmdroid.views.overlay.ScaleBarOverlay;
 
 import java.io.IOException;
+import java.util.Collections;
 
 public class MapView extends org.osmdroid.views.MapView {
     FolderOverlay mHzOverlay, mProvinceOverlay, mSmallCityOverlay;
@@ -132,16 +132,17 @@ public class MapView extends org.osmdroid.views.MapView {
     }
 
     private void initHZ(String hz) {
-        Cursor cursor = DB.directSearch(hz);
-        cursor.moveToFirst();
+        String[] langs = DB.getVisibleColumns();
+        String[] values = DB.lookupBatch(Collections.singletonList(hz), langs).get(hz);
+        if (values == null) return;
         FolderOverlay folderOverlay = new FolderOverlay();
         double level = getZoomLevelDouble();
         try {
-            for (String lang : DB.getVisibleColumns()) {
+            for (int i = 0; i < langs.length; i++) {
+                String lang = langs[i];
                 GeoPoint point = DB.getPoint(lang);
                 if (point == null) continue;
-                int i = DB.getColumnIndex(lang);
-                String string = cursor.getString(i);
+                String string = values[i];
                 if (TextUtils.isEmpty(string)) continue;
                 CharSequence yb = DisplayHelper.formatIPA(lang, DisplayHelper.getRawText(string));
                 CharSequence js = DisplayHelper.formatIPA(lang, string);
@@ -155,7 +156,6 @@ public class MapView extends org.osmdroid.views.MapView {
             getOverlays().add(mHzOverlay);
         } catch (Exception ignore) {
         }
-        cursor.close();
     }
 
     public FolderOverlay geoJsonifyMap(String fileName, int level) {
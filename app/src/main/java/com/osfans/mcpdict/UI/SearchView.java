@@ -134,6 +134,7 @@ public class SearchView extends ConstraintLayout {
             popup.setOnMenuItemClickListener(item -> {
                 String title = Objects.requireNonNull(item.getTitle()).toString();
                 Pref.putShape(title);
+                new Thread(DB::prepareInput).start();
                 item.setChecked(true);
                 updateButtonKeyboard();
                 return true;
@@ -1,7 +1,10 @@
 package com.osfans.mcpdict.Util;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -16,18 +19,34 @@ public class UserDB extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "user";
     private static final int DATABASE_VERSION = 1;
 
-    private static WeakReference<Context> mContext;
+    // The application context, which outlives the activity that initialized this
+    private static Context mContext;
 
     private static SQLiteDatabase db = null;
+    // hz -> comment of every favorite, so that searches do not join the favorite table
+    private static final Map<String, String> favorites = new ConcurrentHashMap<>();
 
     public static Context getContext() {
-        return mContext.get();
+        return mContext;
     }
 
     public static void initialize(Context context) {
         if (db != null) return;
-        mContext = new WeakReference<>(context);
-        db = new UserDB(context).getWritableDatabase();
+        mContext = context.getApplicationContext();
+        db = new UserDB(mContext).getWritableDatabase();
+        loadFavorites();
+    }
+
+    private static void loadFavorites() {
+        Map<String, String> map = new HashMap<>();
+        Cursor cursor = selectAllFavorites();
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            String comment = cursor.getString(cursor.getColumnIndexOrThrow("comment"));
+            map.put(cursor.getString(cursor.getColumnIndexOrThrow("hz")), comment == null ? "" : comment);
+        }
+        cursor.close();
+        favorites.clear();
+        favorites.putAll(map);
     }
 
     public static String getDatabasePath() {
@@ -47,34 +66,48 @@ public class UserDB extends SQLiteOpenHelper {
         return db.rawQuery(query, null);
     }
 
+    public static boolean isFavorite(String hz) {
+        return hz != null && favorites.containsKey(hz);
+    }
+
+    public static String getComment(String hz) {
+        return hz == null ? null : favorites.get(hz);
+    }
+
     // "WRITE" OPERATIONS
 
     public static void insertFavorite(String hz, String comment) {
         ContentValues values = new ContentValues();
         values.put("hz", hz);
         values.put("comment", comment);
-        db.insert("favorite", null, values);
+        if (db.insert("favorite", null, values) != -1) favorites.put(hz, comment == null ? "" : comment);
     }
 
     public static void updateFavorite(String hz, String comment) {
         ContentValues values = new ContentValues();
         values.put("comment", comment);
         String[] args = {hz};
-        db.update("favorite", values, "hz = ?", args);
+        if (db.update("favorite", values, "hz = ?", args) > 0) favorites.put(hz, comment == null ? "" : comment);
     }
 
     public static void deleteFavorite(String hz) {
         String[] args = {hz};
         db.delete("favorite", "hz = ?", args);
+        favorites.remove(hz);
     }
 
     public static void deleteAllFavorites() {
         db.delete("favorite", null, null);
+        favorites.clear();
     }
 
     // EXPORTING AND IMPORTING
 
+    // The changes still in the -wal file are written into the database first, so the copy holds all of them
     public static void exportFavorites() throws IOException {
+        Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null);
+        cursor.moveToFirst();
+        cursor.close();
         ThemeUtil.copyFile(getDatabasePath(), getBackupPath());
     }
 
@@ -88,8 +121,18 @@ public class UserDB extends SQLiteOpenHelper {
         return count;
     }
 
+    // The file is replaced while no connection is open on it
     public static void importFavoritesOverwrite() throws IOException {
-        ThemeUtil.copyFile(getBackupPath(), getDatabasePath());
+        db.close();
+        try {
+            String path = getDatabasePath();
+            new File(path + "-wal").delete();
+            new File(path + "-shm").delete();
+            ThemeUtil.copyFile(getBackupPath(), path);
+        } finally {
+            db = new UserDB(getContext()).getWritableDatabase();
+        }
+        loadFavorites();
     }
 
     public static void importFavoritesMix() {
@@ -97,6 +140,7 @@ public class UserDB extends SQLiteOpenHelper {
         db.execSQL("DELETE FROM favorite WHERE hz IN (SELECT hz FROM backup.favorite)");
         db.execSQL("INSERT INTO favorite(hz, comment, timestamp) SELECT hz, comment, timestamp FROM backup.favorite");
         db.execSQL("DETACH DATABASE backup");
+        loadFavorites();
     }
 
     public static void importFavoritesAppend() {
@@ -104,12 +148,15 @@ public class UserDB extends SQLiteOpenHelper {
         db.execSQL("DELETE FROM favorite WHERE hz IN (SELECT hz FROM backup.favorite)");
         db.execSQL("INSERT INTO favorite(hz, comment) SELECT hz, comment FROM backup.favorite");
         db.execSQL("DETACH DATABASE backup");
+        loadFavorites();
     }
 
     // NON-STATIC METHODS IMPLEMENTING THOSE OF THE ABSTRACT SUPER-CLASS
 
     public UserDB(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // The favorites list is read in the background while favorites are written
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -8,22 +8,28 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.os.AsyncTask;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.text.TextUtils;
 import android.text.method.LinkMovementMethod;
 import android.util.TypedValue;
 import android.view.Gravity;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.text.HtmlCompat;
 
+import com.osfans.mcpdict.UI.RubySpan;
 import com.osfans.mcpdict.UI.WebView;
 import com.osfans.mcpdict.Util.FontUtil;
 
 import java.util.Locale;
 
 public class Utils extends Application {
+    private static final int ANNOTATE_CHUNK = 200;
     private static Utils mApp;
 
     public Utils() {
@@ -36,6 +42,24 @@ public class Utils extends Application {
 
     public static void info(Context context, String lang) {
         WebView webView = new WebView(context, null);
+        new AlertDialog.Builder(context)
+                .setView(webView)
+                .show();
+        // The 同音字表 of a language lists all its readings, so the page is built in the background
+        new AsyncTask<Void, Void, String>() {
+            @Override
+            protected String doInBackground(Void... params) {
+                return DB.getIntroText(DB.getLanguageByLabel(lang));
+            }
+
+            @Override
+            protected void onPostExecute(String intro) {
+                showInfo(webView, intro);
+            }
+        }.execute();
+    }
+
+    private static void showInfo(WebView webView, String intro) {
         String sb = "<style>\n" +
                 "  @font-face {\n" +
                 "      font-family: ipa;\n" +
@@ -45,12 +69,54 @@ public class Utils extends Application {
                 "  h1 {font-size: 24px; color: #9D261D}\n" +
                 "  h2 {font-size: 20px; color: #000080; text-indent: 10px}\n" +
                 " </style>" +
-                DB.getIntroText(DB.getLanguageByLabel(lang));
+                intro;
         webView.loadDataWithBaseURL(null, sb, "text/html", "utf-8", null);
+    }
 
-        new AlertDialog.Builder(context)
-                .setView(webView)
+    // A passage with the reading of each character above it in the current language.
+    // The passage is annotated chunk by chunk in the background and each chunk is shown when it is ready.
+    public static void annotate(Context context, CharSequence text) {
+        if (TextUtils.isEmpty(text)) return;
+        TextView tv = new TextView(context);
+        tv.setPadding(24, 48, 24, 24);
+        tv.setLineSpacing(0, 1.8f);
+        FontUtil.setTypeface(tv);
+        tv.setTextIsSelectable(true);
+        SpannableStringBuilder ssb = new SpannableStringBuilder();
+        ScrollView scrollView = new ScrollView(context);
+        scrollView.addView(tv);
+        AlertDialog dialog = new AlertDialog.Builder(context)
+                .setTitle(R.string.annotate)
+                .setView(scrollView)
                 .show();
+        new AsyncTask<Void, CharSequence, Void>() {
+            // Known once the dictionary is open, which may be after the dialog is
+            private String lang;
+
+            @Override
+            protected Void doInBackground(Void... params) {
+                lang = DB.isLang(Pref.getLabel()) ? Pref.getLabel() : DB.CMN;
+                new Annotator(lang, ANNOTATE_CHUNK).annotate(text, (chars, readings) -> {
+                    SpannableStringBuilder chunk = new SpannableStringBuilder();
+                    for (int i = 0; i < chars.length; i++) {
+                        int n = chunk.length();
+                        chunk.append(chars[i]);
+                        if (readings[i] == null) continue;
+                        String ruby = DisplayHelper.formatIPA(lang, readings[i]).toString();
+                        chunk.setSpan(new RubySpan(ruby), n, chunk.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    }
+                    publishProgress(chunk);
+                });
+                return null;
+            }
+
+            @Override
+            protected void onProgressUpdate(CharSequence... values) {
+                dialog.setTitle(context.getString(R.string.annotate_title, lang));
+                for (CharSequence chunk : values) ssb.append(chunk);
+                tv.setText(ssb);
+            }
+        }.execute();
     }
 
     public static void about(Context context) {
@@ -0,0 +1,96 @@
+package com.osfans.mcpdict;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+// The languages shown under the current filter, with what the renderers read for each of them.
+// DB keeps one instance until a preference it depends on changes, and shares it between threads,
+// so nothing of it can be changed from outside.
+public class VisibleColumns {
+    private final String[] labels;
+    // Positions of the languages in the projection of the searches
+    private final int[] indices;
+    private final int[] colors, subColors;
+    private final String[] hexColors, hexSubColors;
+    private final String[] fqs;
+    // Positions where a new FQ section starts
+    private final boolean[] sectionStarts;
+    private final Projection projection;
+    // The projection with the label column when that is not visible, for the last label asked for
+    private volatile Projection labelProjection;
+
+    VisibleColumns(String[] labels) {
+        int n = labels.length;
+        this.labels = labels.clone();
+        projection = Projection.plan(this.labels, null);
+        indices = new int[n];
+        colors = new int[n];
+        subColors = new int[n];
+        hexColors = new String[n];
+        hexSubColors = new String[n];
+        fqs = new String[n];
+        sectionStarts = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            String label = labels[i];
+            indices[i] = projection.indexOf(label);
+            colors[i] = DB.getColor(label);
+            subColors[i] = DB.getSubColor(label);
+            hexColors[i] = DB.getHexColor(label);
+            hexSubColors[i] = DB.getHexSubColor(label);
+            fqs[i] = DB.getWebFq(label);
+            sectionStarts[i] = i == 0 || !fqs[i].contentEquals(fqs[i - 1]);
+        }
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    // A copy, the caller may change it
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    public String getLabel(int i) {
+        return labels[i];
+    }
+
+    // The reading of the language at i in a search result, read at its position in the projection
+    public String getString(Cursor cursor, int i) {
+        return Projection.getString(cursor, indices[i], labels[i]);
+    }
+
+    public Projection getProjection(String label) {
+        if (TextUtils.isEmpty(label) || projection.indexOf(label) >= 0) return projection;
+        Projection p = labelProjection;
+        if (p == null || !label.contentEquals(p.getLabel())) {
+            p = Projection.plan(labels, label);
+            labelProjection = p;
+        }
+        return p;
+    }
+
+    public int getColor(int i) {
+        return colors[i];
+    }
+
+    public int getSubColor(int i) {
+        return subColors[i];
+    }
+
+    public String getHexColor(int i) {
+        return hexColors[i];
+    }
+
+    public String getHexSubColor(int i) {
+        return hexSubColors[i];
+    }
+
+    public String getFq(int i) {
+        return fqs[i];
+    }
+
+    public boolean isSectionStart(int i) {
+        return sectionStarts[i];
+    }
+}
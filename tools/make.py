@@ -1,10 +1,11 @@
 #!/usr/bin/env python3
 
-import sqlite3, os, sys
+import sqlite3, os, sys, re, struct
 from collections import defaultdict
 from time import time
 from tables import *
 import argparse
+import xml.etree.ElementTree as ET
 
 parser = argparse.ArgumentParser(description='Create mcpdict database')
 parser.add_argument('-省', help='province to include', required=False)
@@ -30,9 +31,124 @@ for i in keys:
 		print(f"{i}重名")
 		exit()
 c.execute(CREATE)
+
+#toneless: the readings of languages with tones, without the tone codes, at the same docid as mcpdict
+def 去調(音):
+	if not 音: return None
+	音 = re.sub(r"\{.*?\}", "", 音).lower()
+	音組 = []
+	for i in re.findall(r"[0-9a-z\u0080-\U0010FFFF]+", 音):
+		i = re.sub(r"^(.+?)[0-9]{1,2}[a-z]?$", r"\1", i)
+		if i not in 音組: 音組.append(i)
+	return " ".join(音組) if 音組 else None
+
+調鍵 = [lang.簡稱 for lang in langs if getattr(lang, "info", None) and lang.info.get("聲調")]
+
+#charset: one bit per entry of pref_values_charset after the first, set when the character is in that set
+字集 = ET.parse('../app/src/main/res/values/strings.xml').getroot().find("string-array[@name='pref_values_charset']")
+字集 = [i.text for i in 字集][1:]
+def 字集位(行):
+	分類 = set(re.findall(r"[0-9a-z\u0080-\U0010FFFF]+", (行.get("分類") or "").lower()))
+	位 = 0
+	for i, j in enumerate(字集):
+		if (行.get(j) if j in keys else j.lower() in 分類):
+			位 |= 1 << i
+	return 位
+c.execute('CREATE TABLE charset (id INTEGER PRIMARY KEY, mask INTEGER NOT NULL)')
+
+if 調鍵:
+	c.execute('CREATE VIRTUAL TABLE toneless USING fts3 (%s)' % (",".join(f"`{i}`" for i in 調鍵)))
+	INSERT_TONELESS = 'INSERT INTO toneless(docid,%s) VALUES (?,%s)' % (",".join(f"`{i}`" for i in 調鍵), ','.join('?' * len(調鍵)))
+
+#readings: one row per reading of every language, lang_id is the rowid of the language in info
+def 分讀(音):
+	if not 音: return []
+	讀組 = []
+	for m in re.finditer(r"\{(.*?)\}|([0-9A-Za-z\u0080-\U0010FFFF]+)", 音):
+		if m.group(2):
+			讀 = re.match(r"^(.+?)([0-9]{1,2}[a-z]?)?$", m.group(2).translate(小寫))
+			讀組.append([讀.group(1), 讀.group(2), None])
+		elif 讀組 and 讀組[-1][2] is None:
+			讀組[-1][2] = m.group(1)
+	return 讀組
+
+小寫 = str.maketrans("ABCDEFGHIJKLMNOPQRSTUVWXYZ", "abcdefghijklmnopqrstuvwxyz")
+讀鍵 = [(序 + 1, lang.簡稱) for 序, lang in enumerate(langs) if getattr(lang, "info", None) and lang.info.get("音節數")]
+c.execute('CREATE TABLE readings (id INTEGER NOT NULL, lang_id INTEGER NOT NULL, pos INTEGER NOT NULL, syllable TEXT NOT NULL, tone TEXT, note TEXT)')
+字表 = [""]
+
+#strokes and radicals: 總筆畫數 and 部首餘筆 as integers for exact and range lookups, negative residual strokes are written f1 in 部首餘筆
+c.execute('CREATE TABLE strokes (id INTEGER NOT NULL, strokes INTEGER NOT NULL)')
+c.execute('CREATE TABLE radicals (id INTEGER NOT NULL, radical TEXT NOT NULL, strokes INTEGER NOT NULL)')
+def 筆畫(行):
+	return sorted(set(int(j) for j in re.findall(r"[0-9]+", 行.get("總筆畫數") or "")))
+def 部首(行):
+	return sorted(set((j, -int(k) if f else int(k)) for j, f, k in re.findall(r"([^0-9,f\s]+)(f?)([0-9]+)", 行.get("部首餘筆") or "")))
+同音 = defaultdict(lambda: defaultdict(list))
+
 for i in sorted(dicts.keys(), key=cjkorder):
 	v = list(map(dicts[i].get, keys))
 	c.execute(INSERT, v)
+	rowid = c.lastrowid
+	if 調鍵:
+		c.execute(INSERT_TONELESS, [rowid] + [去調(dicts[i].get(j)) for j in 調鍵])
+	位 = 字集位(dicts[i])
+	if 位: c.execute('INSERT INTO charset VALUES (?,?)', (rowid, 位))
+	字表.append(dicts[i].get("漢字") or i)
+	c.executemany('INSERT INTO strokes VALUES (?,?)', [(rowid, j) for j in 筆畫(dicts[i])])
+	c.executemany('INSERT INTO radicals VALUES (?,?,?)', [(rowid, j, k) for j, k in 部首(dicts[i])])
+	for 語序, j in 讀鍵:
+		讀組 = 分讀(dicts[i].get(j))
+		c.executemany('INSERT INTO readings VALUES (?,?,?,?,?,?)', [(rowid, 語序, 序, *讀) for 序, 讀 in enumerate(讀組)])
+		for 序, 讀 in enumerate(讀組):
+			表 = 同音[語序][讀[0] + (讀[1] or "")]
+			if not 表 or 表[-1][0] != rowid: 表.append((rowid, 序))
+
+c.execute('CREATE INDEX readings_syllable ON readings (lang_id, syllable, tone)')
+c.execute('CREATE INDEX readings_id ON readings (id, lang_id)')
+c.execute('CREATE INDEX strokes_strokes ON strokes (strokes, id)')
+c.execute('CREATE INDEX radicals_strokes ON radicals (radical, strokes, id)')
+
+#postings: the characters of every reading of every language, mapped by the app without SQLite
+#big-endian: magic, version, character count, language count; character offsets and UTF-8 text by rowid;
+#(lang_id, reading count, first entry) per language; (key offset, key length, postings offset, count) per reading,
+#sorted by UTF-8 key; keys; rowids then positions of each reading, rowids ascending
+def 寫同音(路徑):
+	字 = [j.encode() for j in 字表]
+	語組 = sorted(同音.keys())
+	鍵組 = [sorted(((k.encode(), v) for k, v in 同音[l].items()), key=lambda x: x[0]) for l in 語組]
+	字址 = 16
+	字塊址 = 字址 + (len(字) + 1) * 4
+	語址 = 字塊址 + sum(map(len, 字))
+	條址 = 語址 + len(語組) * 12
+	鍵址 = 條址 + sum(map(len, 鍵組)) * 16
+	表址 = 鍵址 + sum(len(k) for 組 in 鍵組 for k, v in 組)
+	with open(路徑, "wb") as f:
+		f.write(struct.pack(">4sIII", b"MCPH", 1, len(字), len(語組)))
+		址 = 0
+		for j in 字:
+			f.write(struct.pack(">I", 址))
+			址 += len(j)
+		f.write(struct.pack(">I", 址))
+		for j in 字: f.write(j)
+		條 = 條址
+		for l, 組 in zip(語組, 鍵組):
+			f.write(struct.pack(">III", l, len(組), 條))
+			條 += len(組) * 16
+		鍵, 表 = 鍵址, 表址
+		for 組 in 鍵組:
+			for k, v in 組:
+				f.write(struct.pack(">IIII", 鍵, len(k), 表, len(v)))
+				鍵 += len(k)
+				表 += len(v) * 8
+		for 組 in 鍵組:
+			for k, v in 組: f.write(k)
+		for 組 in 鍵組:
+			for k, v in 組:
+				f.write(struct.pack(">%dI" % len(v), *(r for r, p in v)))
+				f.write(struct.pack(">%dI" % len(v), *(p for r, p in v)))
+
+寫同音(os.path.join(os.path.dirname(DIR), "postings.bin"))
 
 #info
 keys = list(langs[辭典數 if len(keys) > 辭典數 else 1].info.keys())